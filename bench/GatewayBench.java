@@ -0,0 +1,115 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load client: at each concurrency level, that many workers send GET requests back
+ * to back over kept-alive connections for the given number of seconds. Prints throughput, errors
+ * and latency percentiles per level.
+ *
+ * <pre>
+ * java bench/GatewayBench.java &lt;url&gt; &lt;levels, e.g. 1,4,16,64&gt; &lt;seconds per level&gt; [user id]
+ * </pre>
+ */
+public class GatewayBench {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: java GatewayBench.java <url> <levels> <seconds> [user id]");
+            System.exit(2);
+        }
+        URI url = URI.create(args[0]);
+        int[] levels = Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray();
+        int seconds = Integer.parseInt(args[2]);
+        String userId = args.length > 3 ? args[3] : "1";
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .header(USER_HEADER, userId)
+                .timeout(Duration.ofSeconds(30))
+                .build();
+
+        run(client, request, levels[0], Math.min(seconds, 3));
+        System.out.printf("%-12s %10s %8s %10s %10s %10s%n", "concurrency", "rps", "errors", "p50 ms", "p99 ms", "max ms");
+        for (int level : levels) {
+            Result result = run(client, request, level, seconds);
+            System.out.printf("%-12d %10.0f %8d %10.1f %10.1f %10.1f%n", level, result.ok / (double) seconds,
+                    result.errors, result.percentile(0.5), result.percentile(0.99), result.percentile(1.0));
+        }
+    }
+
+    private static Result run(HttpClient client, HttpRequest request, int workers, int seconds) throws Exception {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            tasks.add(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status != 200 && errors.incrementAndGet() == 1) {
+                            System.err.println("first error: status " + status);
+                        }
+                        if (status != 200) {
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        if (errors.incrementAndGet() == 1) {
+                            System.err.println("first error: " + e);
+                        }
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            });
+        }
+        List<long[]> perWorker = new ArrayList<>();
+        for (var future : executor.invokeAll(tasks)) {
+            perWorker.add(future.get());
+        }
+        executor.shutdown();
+        long[] all = perWorker.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private static class Result {
+        private final long[] latencies;
+        private final long ok;
+        private final long errors;
+
+        Result(long[] latencies, long errors) {
+            this.latencies = latencies;
+            this.ok = latencies.length;
+            this.errors = errors;
+        }
+
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Starts the server on in-memory H2 and the gateway from the packaged jars, seeds one owner with
+# an item that has a past and a future booking and a comment, then runs GatewayBench against the
+# gateway. Build first with `mvn clean package`. Per-user rate limiting is switched off, as all
+# load comes from one user.
+#
+# Usage: bench/run.sh [path, default /items/1] [levels, default 1,4,16,64] [seconds per level, default 5]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+path=${1:-/items/1}
+levels=${2:-1,4,16,64}
+seconds=${3:-5}
+server=http://localhost:9090
+gateway=http://localhost:8080
+json='Content-Type: application/json'
+
+pids=()
+trap 'kill "${pids[@]}" 2>/dev/null || true' EXIT
+
+java -jar server/target/shareit-server-0.0.1-SNAPSHOT.jar \
+    --spring.datasource.url="jdbc:h2:mem:shareit;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH" \
+    --spring.datasource.driverClassName=org.h2.Driver \
+    --spring.datasource.username=sa --spring.datasource.password= \
+    --shareit.search.engine=like > bench/server.log 2>&1 &
+pids+=($!)
+java -jar gateway/target/shareit-gateway-0.0.1-SNAPSHOT.jar \
+    --shareit.gateway.rate-limit.enabled=false > bench/gateway.log 2>&1 &
+pids+=($!)
+
+wait_for() {
+    for _ in $(seq 1 90); do
+        curl -s -o /dev/null -m 2 "$1" && return 0
+        sleep 1
+    done
+    echo "$1 did not start" >&2
+    exit 1
+}
+wait_for "$server/users"
+wait_for "$gateway/users"
+
+past_start=$(date -u -d '-2 day' +%Y-%m-%dT%H:%M:%S)
+past_end=$(date -u -d '-1 day' +%Y-%m-%dT%H:%M:%S)
+next_start=$(date -u -d '+1 day' +%Y-%m-%dT%H:%M:%S)
+next_end=$(date -u -d '+2 day' +%Y-%m-%dT%H:%M:%S)
+curl -s -o /dev/null -X POST "$server/users" -H "$json" -d '{"name":"owner","email":"owner@bench.com"}'
+curl -s -o /dev/null -X POST "$server/users" -H "$json" -d '{"name":"booker","email":"booker@bench.com"}'
+curl -s -o /dev/null -X POST "$server/items" -H "$json" -H 'X-Sharer-User-Id: 1' \
+    -d '{"name":"Drill","description":"Cordless drill","available":true}'
+curl -s -o /dev/null -X POST "$server/bookings" -H "$json" -H 'X-Sharer-User-Id: 2' \
+    -d "{\"itemId\":1,\"start\":\"$past_start\",\"end\":\"$past_end\"}"
+curl -s -o /dev/null -X PATCH "$server/bookings/1?approved=true" -H 'X-Sharer-User-Id: 1'
+curl -s -o /dev/null -X POST "$server/bookings" -H "$json" -H 'X-Sharer-User-Id: 2' \
+    -d "{\"itemId\":1,\"start\":\"$next_start\",\"end\":\"$next_end\"}"
+curl -s -o /dev/null -X POST "$server/items/1/comment" -H "$json" -H 'X-Sharer-User-Id: 2' -d '{"text":"Works"}'
+
+java bench/GatewayBench.java "$gateway$path" "$levels" "$seconds" 1
@@ -1,62 +1,81 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
+import ru.practicum.shareit.client.ServerInstances;
 
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(WebClient.Builder builder, ResponseCache responseCache,
+                         RequestCoalescer requestCoalescer, ServerCallGuard serverCallGuard,
+                         ServerInstances serverInstances) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(ServerInstances.BASE_URL + API_PREFIX)
+                        .filter(serverCallGuard.forGroup("bookings"))
+                        .filter(serverInstances.balancer())
+                        .build(),
+                responseCache,
+                requestCoalescer
         );
     }
 
-    public ResponseEntity<Object> getAllBookings(long userId, BookingState state, Integer from, Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllBookings(long userId, BookingState state, Integer from, Integer size,
+                                                                 String cursor) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
-                "size", size
+                "size", size,
+                "cursor", Objects.requireNonNullElse(cursor, "")
         );
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+        return get("?state={state}&from={from}&size={size}&cursor={cursor}", userId, parameters);
     }
 
-    public ResponseEntity<Object> create(long userId, BookItemRequestDto requestDto) {
-        return post("", userId, requestDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportBookings(long userId, boolean owner) {
+        return getStream(owner ? "/owner/export" : "/export", userId);
     }
 
-    public ResponseEntity<Object> getBookingById(long userId, Long bookingId) {
-        return get("/" + bookingId, userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> create(long userId, BookItemRequestDto requestDto) {
+        return invalidateAfter(() -> post("", userId, requestDto), ResponseCache.ITEMS);
     }
 
-    public ResponseEntity<Object> approve(Long bookingId, Long userId, Boolean approved) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getBookingById(long userId, Long bookingId, String ifNoneMatch) {
+        return getIfNoneMatch("/" + bookingId, userId, ifNoneMatch);
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> approve(Long bookingId, Long userId, Boolean approved) {
         Map<String, Object> parameters = Map.of(
                 "approved", approved
         );
-        return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
+        return invalidateAfter(() -> patch("/" + bookingId + "?approved={approved}", userId, parameters, null),
+                ResponseCache.ITEMS);
     }
 
-    public ResponseEntity<Object> getBookingsByOwner(Long userId, BookingState state, Integer from, Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getBookingsByOwner(Long userId, BookingState state, Integer from, Integer size,
+                                                                     String cursor) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
-                "size", size
+                "size", size,
+                "cursor", Objects.requireNonNullElse(cursor, "")
         );
-        return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
+        return get("/owner?state={state}&from={from}&size={size}&cursor={cursor}", userId, parameters);
     }
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -14,6 +17,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.exception.BadRequestException;
@@ -33,46 +38,62 @@ public class BookingController {
     private final BookingClient bookingClient;
 
     @GetMapping
-    public ResponseEntity<Object> getBookings(@RequestHeader(OWNER_ID_HEADER) long userId,
-                                              @RequestParam(name = "state", defaultValue = "all") String stateParam,
-                                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getBookings(@RequestHeader(OWNER_ID_HEADER) long userId,
+                                                              @RequestParam(name = "state", defaultValue = "all") String stateParam,
+                                                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+                                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                              @RequestParam(required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
         log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
-        return bookingClient.getAllBookings(userId, state, from, size);
+        return bookingClient.getAllBookings(userId, state, from, size, cursor);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportBookings(@RequestHeader(OWNER_ID_HEADER) long userId) {
+        log.info("Export bookings, userId={}", userId);
+        return bookingClient.exportBookings(userId, false);
+    }
+
+    @GetMapping(value = "/owner/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportBookingsByOwner(@RequestHeader(OWNER_ID_HEADER) long userId) {
+        log.info("Export bookings of owner, userId={}", userId);
+        return bookingClient.exportBookings(userId, true);
     }
 
     @PostMapping
-    public ResponseEntity<Object> create(@RequestHeader(OWNER_ID_HEADER) long userId,
-                                         @RequestBody @Valid BookItemRequestDto requestDto) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> create(@RequestHeader(OWNER_ID_HEADER) long userId,
+                                                         @RequestBody @Valid BookItemRequestDto requestDto) {
         log.info("Creating booking {}, userId={}", requestDto, userId);
         return bookingClient.create(userId, requestDto);
     }
 
     @GetMapping("/{bookingId}")
-    public ResponseEntity<Object> getBooking(@RequestHeader(OWNER_ID_HEADER) long userId,
-                                             @PathVariable Long bookingId) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getBooking(@RequestHeader(OWNER_ID_HEADER) long userId,
+                                                             @PathVariable Long bookingId,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                             String ifNoneMatch) {
         log.info("Get booking {}, userId={}", bookingId, userId);
-        return bookingClient.getBookingById(userId, bookingId);
+        return bookingClient.getBookingById(userId, bookingId, ifNoneMatch);
     }
 
     @PatchMapping("/{bookingId}")
-    public ResponseEntity<Object> updateBooking(@PathVariable Long bookingId,
-                                                @RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                @RequestParam @NotNull Boolean approved) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateBooking(@PathVariable Long bookingId,
+                                                                @RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                @RequestParam @NotNull Boolean approved) {
         log.info("patch approved userId={} bookingId={}", userId, bookingId);
         return bookingClient.approve(bookingId, userId, approved);
     }
 
     @GetMapping("/owner")
-    public ResponseEntity<Object> getAllBookingsByOwner(@RequestParam(defaultValue = "ALL") String state,
-                                                        @RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                        @PositiveOrZero @RequestParam(defaultValue = "0") Integer from,
-                                                        @Positive @RequestParam(defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllBookingsByOwner(@RequestParam(defaultValue = "ALL") String state,
+                                                                        @RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                        @PositiveOrZero @RequestParam(defaultValue = "0") Integer from,
+                                                                        @Positive @RequestParam(defaultValue = "10") Integer size,
+                                                                        @RequestParam(required = false) String cursor) {
         BookingState stateParam = BookingState.from(state)
                 .orElseThrow(() -> new BadRequestException("Unknown state: " + state));
         log.info("Get booking with state {}, userId={}, from={}, size={}", state, userId, from, size);
-        return bookingClient.getBookingsByOwner(userId, stateParam, from, size);
+        return bookingClient.getBookingsByOwner(userId, stateParam, from, size, cursor);
     }
 }
\ No newline at end of file
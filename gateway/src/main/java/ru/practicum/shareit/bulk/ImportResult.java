@@ -0,0 +1,17 @@
+package ru.practicum.shareit.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResult {
+    private long imported;
+    private long failed;
+    private List<ImportError> errors = new ArrayList<>();
+}
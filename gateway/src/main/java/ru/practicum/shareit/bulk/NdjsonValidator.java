@@ -0,0 +1,94 @@
+package ru.practicum.shareit.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validates newline-delimited JSON imports on their way to the server. Records that fail the DTO
+ * constraints are replaced with blank lines, so the server reports its own errors against the
+ * same line numbers and both lists can be merged into one result.
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonValidator {
+    private static final StringDecoder LINE_DECODER = StringDecoder.allMimeTypes();
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public <T> Flux<DataBuffer> filter(Flux<DataBuffer> body, Class<T> type, Class<?> group,
+                                       List<ImportError> errors) {
+        return LINE_DECODER.decode(body, ResolvableType.forClass(String.class), null, null)
+                .index()
+                .map(line -> {
+                    String json = line.getT2();
+                    String error = json.isBlank() ? null : validate(json, type, group);
+                    if (error != null) {
+                        errors.add(new ImportError(line.getT1() + 1, error));
+                        json = "";
+                    }
+                    return DefaultDataBufferFactory.sharedInstance.wrap((json + '\n').getBytes(StandardCharsets.UTF_8));
+                });
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> merge(ResponseEntity<Flux<DataBuffer>> response,
+                                                        List<ImportError> errors) {
+        if (!response.getStatusCode().is2xxSuccessful() || errors.isEmpty() || response.getBody() == null) {
+            return Mono.just(response);
+        }
+        return DataBufferUtils.join(response.getBody())
+                .map(body -> {
+                    try (InputStream input = body.asInputStream(true)) {
+                        ImportResult result = objectMapper.readValue(input, ImportResult.class);
+                        result.setFailed(result.getFailed() + errors.size());
+                        result.getErrors().addAll(errors);
+                        result.getErrors().sort(Comparator.comparingLong(ImportError::getLine));
+                        return ResponseEntity.status(response.getStatusCode())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(Flux.just(DefaultDataBufferFactory.sharedInstance
+                                        .wrap(objectMapper.writeValueAsBytes(result))));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private <T> String validate(String line, Class<T> type, Class<?> group) {
+        T record;
+        try {
+            record = objectMapper.readValue(line, type);
+        } catch (JsonProcessingException e) {
+            return "Malformed record: " + e.getOriginalMessage();
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(record, group);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
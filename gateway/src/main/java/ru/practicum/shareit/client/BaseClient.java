@@ -2,97 +2,252 @@ package ru.practicum.shareit.client;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
-import org.springframework.http.HttpEntity;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class BaseClient {
-    protected final RestTemplate rest;
+    /**
+     * Headers describing the connection to the server, not the response; the gateway frames its own.
+     */
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(HttpHeaders.CONNECTION, "Keep-Alive",
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.UPGRADE);
 
-    public BaseClient(RestTemplate rest) {
-        this.rest = rest;
+    protected final WebClient webClient;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+
+    public BaseClient(WebClient webClient, ResponseCache responseCache, RequestCoalescer requestCoalescer) {
+        this.webClient = webClient;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    /**
+     * GET of a single resource, coalesced with identical ones in flight.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> getOne(String path, @Nullable Long userId) {
+        return requestCoalescer.get(requestKey(path, userId, null, null),
+                () -> makeAndSendRequest(HttpMethod.GET, path, userId, null, null));
+    }
+
+    /**
+     * GET of a page of the given size, coalesced with identical ones in flight when the page is
+     * small enough to be buffered.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> getPage(String path, Long userId, Map<String, Object> parameters,
+                                                             int size) {
+        if (!requestCoalescer.isSharedPage(size)) {
+            return get(path, userId, parameters);
+        }
+        return requestCoalescer.get(requestKey(path, userId, parameters, null), () -> get(path, userId, parameters));
+    }
+
+    /**
+     * GET of a single resource that passes the caller's If-None-Match to the server, so an
+     * unchanged resource is answered with 304.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> getIfNoneMatch(String path, long userId, @Nullable String ifNoneMatch) {
+        HttpHeaders headers = defaultHeaders(userId);
+        if (ifNoneMatch != null) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return requestCoalescer.get(requestKey(path, userId, null, ifNoneMatch),
+                () -> makeAndSendRequest(HttpMethod.GET, path, headers, null, null));
+    }
+
+    /**
+     * GET answered from the gateway response cache when it is enabled.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> cachedGet(String region, String path, Long userId,
+                                                               @Nullable Map<String, Object> parameters) {
+        return responseCache.get(region, requestKey(path, userId, parameters, null),
+                () -> get(path, userId, parameters));
+    }
+
+    /**
+     * Cached variant of {@link #getOne}.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> cachedGetOne(String region, String path, @Nullable Long userId) {
+        return responseCache.get(region, requestKey(path, userId, null, null), () -> getOne(path, userId));
+    }
+
+    /**
+     * Cached variant of {@link #getPage}.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> cachedGetPage(String region, String path, Long userId,
+                                                                   Map<String, Object> parameters, int size) {
+        return responseCache.get(region, requestKey(path, userId, parameters, null),
+                () -> getPage(path, userId, parameters, size));
+    }
+
+    /**
+     * Cached variant of {@link #getIfNoneMatch}: a cached response whose ETag the caller already
+     * holds is answered with 304 by the gateway itself.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> cachedGetIfNoneMatch(String region, String path, long userId,
+                                                                          @Nullable String ifNoneMatch) {
+        if (!responseCache.isEnabled()) {
+            return getIfNoneMatch(path, userId, ifNoneMatch);
+        }
+        return cachedGetOne(region, path, userId).map(response -> {
+            String eTag = response.getHeaders().getETag();
+            if (eTag != null && ifNoneMatch != null && ifNoneMatch.contains(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Runs a write and then drops the cached responses of the given regions, whatever its outcome.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> invalidateAfter(Supplier<Mono<ResponseEntity<Flux<DataBuffer>>>> write,
+                                                                     String... regions) {
+        return Mono.defer(write).doFinally(signal -> responseCache.invalidate(regions));
+    }
+
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> post(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                                              T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> put(String path, long userId, @Nullable Map<String, Object> parameters,
+                                                             T body) {
         return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> patch(String path, long userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+    protected <T> Mono<ResponseEntity<Flux<DataBuffer>>> patch(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                                               @Nullable T body) {
         return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    /**
+     * POST of a newline-delimited JSON body that is relayed to the server as it is produced.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> postStream(String path, Long userId, Flux<DataBuffer> body) {
+        return written(relay(webClient.post()
+                .uri(path)
+                .headers(headers -> headers.addAll(defaultHeaders(userId)))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(BodyInserters.fromDataBuffers(body))));
+    }
 
-        ResponseEntity<Object> shareitServerResponse;
-        try {
-            if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
-            }
-        } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+    /**
+     * GET of a newline-delimited JSON stream, relayed like any other response.
+     */
+    protected Mono<ResponseEntity<Flux<DataBuffer>>> getStream(String path, Long userId) {
+        return relay(webClient.get()
+                .uri(path)
+                .headers(headers -> headers.addAll(defaultHeaders(userId)))
+                .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+    }
+
+    private <T> Mono<ResponseEntity<Flux<DataBuffer>>> makeAndSendRequest(HttpMethod method, String path, Long userId,
+                                                                          @Nullable Map<String, Object> parameters,
+                                                                          @Nullable T body) {
+        return makeAndSendRequest(method, path, defaultHeaders(userId), parameters, body);
+    }
+
+    private <T> Mono<ResponseEntity<Flux<DataBuffer>>> makeAndSendRequest(HttpMethod method, String path, HttpHeaders headers,
+                                                                          @Nullable Map<String, Object> parameters,
+                                                                          @Nullable T body) {
+        WebClient.RequestBodySpec request = webClient.method(method)
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(requestHeaders -> requestHeaders.addAll(headers));
+        if (body != null) {
+            request.bodyValue(body);
         }
-        return prepareGatewayResponse(shareitServerResponse);
+        return method == HttpMethod.GET ? relay(request) : written(relay(request));
+    }
+
+    /**
+     * Lets no read that is in flight when a write completes be shared with reads issued after it.
+     * The generation moves before the write's response is handed on.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> written(Mono<ResponseEntity<Flux<DataBuffer>>> write) {
+        return write.doOnSuccess(response -> requestCoalescer.invalidate())
+                .doOnError(e -> requestCoalescer.invalidate());
+    }
+
+    /**
+     * Sends the request and relays the server's response as it arrives: status, end-to-end headers
+     * and the body as raw buffers, whatever the status. Nothing is parsed, and only the buffers in
+     * flight are held in memory.
+     */
+    private static Mono<ResponseEntity<Flux<DataBuffer>>> relay(WebClient.RequestHeadersSpec<?> request) {
+        return request.retrieve()
+                .onRawStatus(status -> true, response -> Mono.empty())
+                .toEntityFlux(DataBuffer.class)
+                .map(BaseClient::prepareGatewayResponse);
+    }
+
+    /**
+     * Identifies a GET of this client by everything that can change its response.
+     */
+    private String requestKey(String path, Long userId, @Nullable Map<String, Object> parameters,
+                              @Nullable String ifNoneMatch) {
+        return getClass().getSimpleName() + " " + userId + " " + path
+                + (parameters != null ? " " + parameters : "")
+                + (ifNoneMatch != null ? " " + ifNoneMatch : "");
     }
 
     private HttpHeaders defaultHeaders(Long userId) {
@@ -105,17 +260,10 @@ public class BaseClient {
         return headers;
     }
 
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
-        }
-
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
-
-        if (response.hasBody()) {
-            return responseBuilder.body(response.getBody());
-        }
-
-        return responseBuilder.build();
+    private static ResponseEntity<Flux<DataBuffer>> prepareGatewayResponse(ResponseEntity<Flux<DataBuffer>> response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        HOP_BY_HOP_HEADERS.forEach(headers::remove);
+        return ResponseEntity.status(response.getStatusCodeValue()).headers(headers).body(response.getBody());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package ru.practicum.shareit.client;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * One keep-alive connection pool to the server, shared by all clients of the gateway through the
+ * auto-configured WebClient.Builder. Requests run on the Netty event loop, so a waiting request
+ * holds a pooled connection but no thread. Pool usage is published as
+ * reactor.netty.connection.provider.* {name=shareit-server}.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider shareItServerConnectionProvider(
+            @Value("${shareit-server.pool.max-connections}") int maxConnections,
+            @Value("${shareit-server.pool.max-pending}") int maxPending,
+            @Value("${shareit-server.pool.acquire-timeout}") Duration acquireTimeout,
+            @Value("${shareit-server.pool.keep-alive}") Duration keepAlive) {
+        return ConnectionProvider.builder("shareit-server")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPending)
+                .pendingAcquireTimeout(acquireTimeout)
+                .maxIdleTime(keepAlive)
+                .evictInBackground(keepAlive)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public ClientHttpConnector shareItServerConnector(
+            ConnectionProvider connectionProvider,
+            @Value("${shareit-server.connect-timeout}") Duration connectTimeout,
+            @Value("${shareit-server.read-timeout}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout)
+                .keepAlive(true);
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
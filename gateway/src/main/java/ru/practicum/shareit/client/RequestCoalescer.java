@@ -0,0 +1,87 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for idempotent requests: identical requests arriving while one is in flight wait
+ * for that call and get a copy of its response instead of reaching the server. The call is
+ * forgotten as soon as it completes, so no response outlives its call. The shared response is
+ * buffered, so only reads of a single resource and pages of at most
+ * shareit.gateway.coalescing.max-page-size entries are coalesced; other lists are relayed as they
+ * stream.
+ * A write passing through the gateway bumps the generation that prefixes every key, so a read
+ * issued after a write never joins a call started before it. Calls are counted as
+ * gateway.requests.coalesced {result=upstream|shared}.
+ */
+@Component
+public class RequestCoalescer {
+    private final boolean enabled;
+    private final int maxPageSize;
+    private final Map<String, Mono<ResponseEntity<byte[]>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter upstream;
+    private final Counter shared;
+
+    public RequestCoalescer(@Value("${shareit.gateway.coalescing.enabled}") boolean enabled,
+                            @Value("${shareit.gateway.coalescing.max-page-size}") int maxPageSize,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxPageSize = maxPageSize;
+        this.upstream = meterRegistry.counter("gateway.requests.coalesced", "result", "upstream");
+        this.shared = meterRegistry.counter("gateway.requests.coalesced", "result", "shared");
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> get(String key,
+                                                      Supplier<Mono<ResponseEntity<Flux<DataBuffer>>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            Mono<ResponseEntity<byte[]>> call = inFlight.computeIfAbsent(generation.get() + ":" + key, k -> {
+                started.set(true);
+                return start(k, loader);
+            });
+            (started.get() ? upstream : shared).increment();
+            return call.map(ResponseBodies::replay);
+        });
+    }
+
+    public boolean isSharedPage(int size) {
+        return size <= maxPageSize;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The call removes itself before its result is handed out, so a request arriving after that
+     * starts a new call rather than subscribing to a finished one.
+     */
+    private Mono<ResponseEntity<byte[]>> start(String key, Supplier<Mono<ResponseEntity<Flux<DataBuffer>>>> loader) {
+        AtomicReference<Mono<ResponseEntity<byte[]>>> call = new AtomicReference<>();
+        Runnable forget = () -> inFlight.remove(key, call.get());
+        call.set(Mono.defer(loader)
+                .flatMap(ResponseBodies::buffer)
+                .doOnSuccess(response -> forget.run())
+                .doOnError(e -> forget.run())
+                .doOnCancel(forget)
+                .share());
+        return call.get();
+    }
+}
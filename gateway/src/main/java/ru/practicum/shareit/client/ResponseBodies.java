@@ -0,0 +1,35 @@
+package ru.practicum.shareit.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Conversions between relayed responses and buffered ones, for responses handed to more than one caller.
+ */
+final class ResponseBodies {
+    private ResponseBodies() {
+    }
+
+    static Mono<ResponseEntity<byte[]>> buffer(ResponseEntity<Flux<DataBuffer>> response) {
+        Flux<DataBuffer> body = response.getBody() != null ? response.getBody() : Flux.empty();
+        return DataBufferUtils.join(body)
+                .map(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .map(bytes -> new ResponseEntity<>(bytes, response.getHeaders(), response.getStatusCode()));
+    }
+
+    static ResponseEntity<Flux<DataBuffer>> replay(ResponseEntity<byte[]> response) {
+        Flux<DataBuffer> body = Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance
+                .wrap(response.getBody())));
+        return new ResponseEntity<>(body, response.getHeaders(), response.getStatusCode());
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of successful GET responses, keyed by path and X-Sharer-User-Id. Every entry
+ * belongs to a region; a write passing through the gateway bumps the generation of the regions
+ * it affects, so older entries are no longer reachable and simply age out. A response loaded
+ * while a write was in flight is stored under the generation read before the load, which keeps
+ * it out of reach as well. Bodies are kept as the bytes the server sent. Disabled by default,
+ * see shareit.gateway.cache.*.
+ */
+@Component
+public class ResponseCache {
+    public static final String USERS = "users";
+    public static final String ITEMS = "items";
+    public static final String REQUESTS = "requests";
+
+    private final boolean enabled;
+    private final Cache<String, ResponseEntity<byte[]>> cache;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public ResponseCache(@Value("${shareit.gateway.cache.enabled}") boolean enabled,
+                         @Value("${shareit.gateway.cache.spec}") String spec,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.from(spec).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gatewayResponses");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> get(String region, String key,
+                                                      Supplier<Mono<ResponseEntity<Flux<DataBuffer>>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.defer(() -> {
+            String generationKey = region + ':' + generation(region).get() + ':' + key;
+            ResponseEntity<byte[]> cached = cache.getIfPresent(generationKey);
+            if (cached != null) {
+                return Mono.just(ResponseBodies.replay(cached));
+            }
+            return loader.get().flatMap(loaded -> {
+                if (!loaded.getStatusCode().is2xxSuccessful()) {
+                    return Mono.just(loaded);
+                }
+                return ResponseBodies.buffer(loaded)
+                        .doOnNext(response -> cache.put(generationKey, response))
+                        .map(ResponseBodies::replay);
+            });
+        });
+    }
+
+    public void invalidate(String... regions) {
+        if (!enabled) {
+            return;
+        }
+        for (String region : regions) {
+            generation(region).incrementAndGet();
+        }
+    }
+
+    private AtomicLong generation(String region) {
+        return generations.computeIfAbsent(region, r -> new AtomicLong());
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.shareit.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Isolation of calls to the server. A semaphore bulkhead per endpoint group caps the calls that
+ * group may have waiting on the server, so a slow group cannot take the whole connection pool,
+ * and one circuit breaker over all groups fails fast once the server's error rate or share of
+ * slow calls crosses its threshold. A 5xx response counts as a failure but is still relayed.
+ * Rejected calls are answered with 503, see ErrorHandler; both are configured under
+ * resilience4j.* and exposed through actuator.
+ */
+@Component
+public class ServerCallGuard {
+    public static final String CIRCUIT_BREAKER = "shareit-server";
+
+    private final CircuitBreaker circuitBreaker;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public ServerCallGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER);
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    public ExchangeFilterFunction forGroup(String group) {
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(group);
+        return (request, next) -> next.exchange(request)
+                .flatMap(response -> response.statusCode().is5xxServerError()
+                        ? Mono.<ClientResponse>error(new ServerErrorResponse(response))
+                        : Mono.just(response))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .onErrorResume(ServerErrorResponse.class, e -> Mono.just(e.response));
+    }
+
+    /**
+     * Carries a server error response past the circuit breaker, which records it as a failure.
+     */
+    private static class ServerErrorResponse extends RuntimeException {
+        private final transient ClientResponse response;
+
+        ServerErrorResponse(ClientResponse response) {
+            super("Server responded with " + response.rawStatusCode(), null, false, false);
+            this.response = response;
+        }
+    }
+}
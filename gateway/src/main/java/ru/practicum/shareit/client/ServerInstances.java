@@ -0,0 +1,232 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.PrematureCloseException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Client-side balancing over the server instances listed in shareit-server.url. Clients address
+ * the logical {@link #BASE_URL}; each call is sent to the less busy of two randomly picked healthy
+ * instances, busy meaning calls waiting on that instance for a response. Every instance is probed
+ * at shareit-server.health-check.path: it is ejected after unhealthy-threshold failed probes, or
+ * at once when a connection to it is refused, and returns after healthy-threshold passed probes.
+ * A call refused by an instance is sent to another one, as it never reached the server, and so is
+ * a GET whose connection closed before the response; each instance is tried at most once. If no
+ * instance is healthy, all of them are tried. Instances are published as
+ * gateway.server.instance.up and gateway.server.instance.outstanding {instance}.
+ * <p>
+ * Balancing is off unless shareit-server.balancing.enabled is set: every call then goes to the
+ * first listed instance and no health checks run. Booking overlaps are enforced by the database.
+ * Server caches are per instance: to balance, run every instance with
+ * shareit.cache.events.enabled, so each one drops what the writes of the others changed.
+ */
+@Slf4j
+@Component
+public class ServerInstances {
+    public static final String BASE_URL = "http://shareit-server";
+
+    private final List<Instance> instances;
+    private final WebClient healthClient;
+    private final String healthPath;
+    private final Duration interval;
+    private final Duration timeout;
+    private final int unhealthyThreshold;
+    private final int healthyThreshold;
+    private final boolean balancing;
+    private Disposable healthChecks;
+
+    public ServerInstances(@Value("${shareit-server.url}") List<URI> urls,
+                           @Value("${shareit-server.balancing.enabled}") boolean balancing,
+                           @Value("${shareit-server.health-check.path}") String healthPath,
+                           @Value("${shareit-server.health-check.interval}") Duration interval,
+                           @Value("${shareit-server.health-check.timeout}") Duration timeout,
+                           @Value("${shareit-server.health-check.unhealthy-threshold}") int unhealthyThreshold,
+                           @Value("${shareit-server.health-check.healthy-threshold}") int healthyThreshold,
+                           WebClient.Builder builder, MeterRegistry meterRegistry) {
+        this.balancing = balancing;
+        this.instances = urls.stream()
+                .limit(balancing ? urls.size() : 1)
+                .map(Instance::new)
+                .collect(Collectors.toList());
+        if (!balancing && urls.size() > 1) {
+            log.warn("Balancing is disabled, all calls go to {}", urls.get(0));
+        }
+        this.healthClient = builder.build();
+        this.healthPath = healthPath;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.unhealthyThreshold = unhealthyThreshold;
+        this.healthyThreshold = healthyThreshold;
+        instances.forEach(instance -> {
+            Gauge.builder("gateway.server.instance.up", instance, i -> i.healthy ? 1 : 0)
+                    .tag("instance", instance.uri.toString())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.server.instance.outstanding", instance.outstanding, AtomicInteger::get)
+                    .tag("instance", instance.uri.toString())
+                    .register(meterRegistry);
+        });
+    }
+
+    @PostConstruct
+    public void startHealthChecks() {
+        if (!balancing) {
+            return;
+        }
+        healthChecks = Flux.interval(Duration.ZERO, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(instances).flatMap(this::check))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stopHealthChecks() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+    }
+
+    /**
+     * Sends each call of a client to one of the instances, in place of the host of {@link #BASE_URL}.
+     */
+    public ExchangeFilterFunction balancer() {
+        return (request, next) -> exchange(request, next, List.of());
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, List<Instance> tried) {
+        return Mono.defer(() -> {
+            Instance instance = choose(tried);
+            instance.outstanding.incrementAndGet();
+            return next.exchange(instance.route(request))
+                    .doFinally(signal -> instance.outstanding.decrementAndGet())
+                    .onErrorResume(WebClientRequestException.class, e -> {
+                        boolean refused = causedBy(e, ConnectException.class);
+                        if (refused) {
+                            instance.eject(e.getMessage());
+                        }
+                        boolean retry = refused
+                                || request.method() == HttpMethod.GET && causedBy(e, PrematureCloseException.class);
+                        if (!retry || tried.size() + 1 == instances.size()) {
+                            return Mono.error(e);
+                        }
+                        List<Instance> nowTried = new ArrayList<>(tried);
+                        nowTried.add(instance);
+                        return exchange(request, next, nowTried);
+                    });
+        });
+    }
+
+    /**
+     * Power of two choices: cheap to pick, and unlike a plain random pick it keeps away from an
+     * instance that has fallen behind.
+     */
+    private Instance choose(List<Instance> tried) {
+        List<Instance> untried = instances.stream()
+                .filter(instance -> !tried.contains(instance))
+                .collect(Collectors.toList());
+        List<Instance> candidates = untried.stream()
+                .filter(instance -> instance.healthy)
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            candidates = untried;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Instance a = candidates.get(first);
+        Instance b = candidates.get(second);
+        return a.outstanding.get() <= b.outstanding.get() ? a : b;
+    }
+
+    private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> check(Instance instance) {
+        return healthClient.get()
+                .uri(instance.uri.resolve(healthPath))
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .map(response -> true)
+                .onErrorReturn(false)
+                .doOnNext(passed -> instance.record(passed, healthyThreshold, unhealthyThreshold))
+                .then();
+    }
+
+    private static class Instance {
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private int passed;
+        private int failed;
+
+        Instance(URI uri) {
+            this.uri = uri;
+        }
+
+        ClientRequest route(ClientRequest request) {
+            URI url = UriComponentsBuilder.fromUri(request.url())
+                    .scheme(uri.getScheme())
+                    .host(uri.getHost())
+                    .port(uri.getPort())
+                    .build(true)
+                    .toUri();
+            return ClientRequest.from(request).url(url).build();
+        }
+
+        synchronized void record(boolean probePassed, int healthyThreshold, int unhealthyThreshold) {
+            passed = probePassed ? passed + 1 : 0;
+            failed = probePassed ? 0 : failed + 1;
+            if (!healthy && passed >= healthyThreshold) {
+                healthy = true;
+                log.info("Server instance {} is back", uri);
+            } else if (healthy && failed >= unhealthyThreshold) {
+                eject("health check failed " + failed + " times");
+            }
+        }
+
+        synchronized void eject(String reason) {
+            passed = 0;
+            if (healthy) {
+                healthy = false;
+                log.warn("Server instance {} ejected: {}", uri, reason);
+            }
+        }
+    }
+}
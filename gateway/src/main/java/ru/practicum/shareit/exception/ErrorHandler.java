@@ -1,14 +1,17 @@
 package ru.practicum.shareit.exception;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.bind.MethodArgumentNotValidException;
-import org.springframework.web.bind.MissingRequestValueException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ServerWebInputException;
 
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
@@ -40,18 +43,25 @@ public class ErrorHandler {
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleUnknownDataException(MethodArgumentNotValidException e) {
+    public ErrorResponse handleUnknownDataException(WebExchangeBindException e) {
         log.warn("400 {}", e.getMessage());
         return ErrorResponse.builder().error(e.getMessage()).build();
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleUnknownDataException(MissingRequestValueException e) {
+    public ErrorResponse handleUnknownDataException(ServerWebInputException e) {
         log.warn("400 {}", e.getMessage());
         return ErrorResponse.builder().error(e.getMessage()).build();
     }
 
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class, WebClientRequestException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServerUnavailable(RuntimeException e) {
+        log.warn("503 {}", e.getMessage());
+        return ErrorResponse.builder().error("The server is unavailable, try again later.").build();
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(Throwable throwable) {
@@ -1,62 +1,99 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
+import ru.practicum.shareit.client.ServerInstances;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(WebClient.Builder builder, ResponseCache responseCache,
+                      RequestCoalescer requestCoalescer, ServerCallGuard serverCallGuard,
+                      ServerInstances serverInstances) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(ServerInstances.BASE_URL + API_PREFIX)
+                        .filter(serverCallGuard.forGroup("items"))
+                        .filter(serverInstances.balancer())
+                        .build(),
+                responseCache,
+                requestCoalescer
         );
     }
 
-    public ResponseEntity<Object> createItem(Long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createItem(Long userId, ItemDto itemDto) {
+        return invalidateAfter(() -> post("", userId, itemDto), ResponseCache.ITEMS, ResponseCache.REQUESTS);
     }
 
-    public ResponseEntity<Object> updateItem(ItemDto itemDto, long itemId, Long userId) {
-        return patch("/" + itemId, userId, itemDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateItem(ItemDto itemDto, long itemId, Long userId) {
+        return invalidateAfter(() -> patch("/" + itemId, userId, itemDto),
+                ResponseCache.ITEMS, ResponseCache.REQUESTS);
     }
 
-    public ResponseEntity<Object> getItemById(Long itemId, Long userId) {
-        return get("/" + itemId, userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getItemById(Long itemId, Long userId, String ifNoneMatch) {
+        return cachedGetIfNoneMatch(ResponseCache.ITEMS, "/" + itemId, userId, ifNoneMatch);
     }
 
-    public ResponseEntity<Object> getAllUsersItems(Long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllUsersItems(Long userId, Integer from, Integer size, String cursor) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
-                "size", size
+                "size", size,
+                "cursor", Objects.requireNonNullElse(cursor, "")
         );
-        return get("", userId, parameters);
+        return cachedGet(ResponseCache.ITEMS, "?from={from}&size={size}&cursor={cursor}", userId, parameters);
     }
 
-    public ResponseEntity<Object> searchItems(Long userId, String text, Integer from, Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> searchItems(Long userId, String text, Integer from, Integer size, String cursor) {
         Map<String, Object> parameters = Map.of(
                 "text", text,
                 "from", from,
-                "size", size
+                "size", size,
+                "cursor", Objects.requireNonNullElse(cursor, "")
         );
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+        return cachedGetPage(ResponseCache.ITEMS, "/search?text={text}&from={from}&size={size}&cursor={cursor}", userId,
+                parameters, size);
     }
 
-    public ResponseEntity<Object> addComment(Long itemId, Long userId, CommentDto commentDto) {
-        return post("/" + itemId + "/comment", userId, commentDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        return cachedGet(ResponseCache.ITEMS, "/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> importItems(Long userId, Flux<DataBuffer> body) {
+        return invalidateAfter(() -> postStream("/import", userId, body), ResponseCache.ITEMS, ResponseCache.REQUESTS);
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getComments(Long itemId, Long userId, Integer from, Integer size, String cursor) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "size", size,
+                "cursor", Objects.requireNonNullElse(cursor, "")
+        );
+        return cachedGet(ResponseCache.ITEMS, "/" + itemId + "/comments?from={from}&size={size}&cursor={cursor}", userId,
+                parameters);
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> addComment(Long itemId, Long userId, CommentDto commentDto) {
+        return invalidateAfter(() -> post("/" + itemId + "/comment", userId, commentDto), ResponseCache.ITEMS);
     }
 }
\ No newline at end of file
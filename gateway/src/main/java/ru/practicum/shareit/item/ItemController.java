@@ -1,6 +1,11 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -12,14 +17,22 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.Marker;
+import ru.practicum.shareit.bulk.ImportError;
+import ru.practicum.shareit.bulk.NdjsonValidator;
+import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Controller
 @RequestMapping(path = "/items")
@@ -27,49 +40,87 @@ import java.util.Collections;
 @Validated
 public class ItemController {
     private static final String OWNER_ID_HEADER = "X-Sharer-User-Id";
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.US_ASCII);
     private final ItemClient itemClient;
+    private final NdjsonValidator ndjsonValidator;
 
     @PostMapping
-    public ResponseEntity<Object> createItem(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                             @Validated({Marker.OnCreate.class}) @RequestBody ItemDto itemDto) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createItem(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                             @Validated({Marker.OnCreate.class}) @RequestBody ItemDto itemDto) {
         return itemClient.createItem(userId, itemDto);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> importItems(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                              @RequestBody Flux<DataBuffer> body) {
+        List<ImportError> errors = new ArrayList<>();
+        return itemClient.importItems(userId, ndjsonValidator.filter(body, ItemDto.class, Marker.OnCreate.class, errors))
+                .flatMap(response -> ndjsonValidator.merge(response, errors));
+    }
+
     @PatchMapping("{itemId}")
-    public ResponseEntity<Object> updateItem(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                             @Validated({Marker.OnUpdate.class}) @RequestBody ItemDto itemDto,
-                                             @PathVariable Long itemId) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateItem(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                             @Validated({Marker.OnUpdate.class}) @RequestBody ItemDto itemDto,
+                                                             @PathVariable Long itemId) {
         return itemClient.updateItem(itemDto, itemId, userId);
     }
 
     @GetMapping("{itemId}")
-    public ResponseEntity<Object> getItemByItemId(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                  @PathVariable Long itemId) {
-        return itemClient.getItemById(itemId, userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getItemByItemId(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                  @PathVariable Long itemId,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                                  String ifNoneMatch) {
+        return itemClient.getItemById(itemId, userId, ifNoneMatch);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllUsersItems(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                   @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
-                                                   @Positive @RequestParam(value = "size", defaultValue = "10") Integer size) {
-        return itemClient.getAllUsersItems(userId, from, size);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllUsersItems(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                   @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
+                                                                   @Positive @RequestParam(value = "size", defaultValue = "10") Integer size,
+                                                                   @RequestParam(required = false) String cursor) {
+        return itemClient.getAllUsersItems(userId, from, size, cursor);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> searchItems(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                              @RequestParam String text,
-                                              @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(value = "size", defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> searchItems(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                              @RequestParam String text,
+                                                              @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
+                                                              @Positive @RequestParam(value = "size", defaultValue = "10") Integer size,
+                                                              @RequestParam(required = false) String cursor) {
         if (text.isBlank()) {
-            return ResponseEntity.ok(Collections.emptyList());
+            return Mono.just(ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(EMPTY_LIST))));
         }
-        return itemClient.searchItems(userId, text, from, size);
+        return itemClient.searchItems(userId, text, from, size, cursor);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAvailability(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                  @PathVariable Long itemId,
+                                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                  LocalDateTime from,
+                                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                  LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException(String.format("Invalid availability range from = %s to = %s", from, to));
+        }
+        return itemClient.getAvailability(itemId, userId, from, to);
+    }
+
+    @GetMapping("/{itemId}/comments")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getComments(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                              @PathVariable Long itemId,
+                                                              @PositiveOrZero @RequestParam(value = "from", defaultValue = "0") Integer from,
+                                                              @Positive @RequestParam(value = "size", defaultValue = "10") Integer size,
+                                                              @RequestParam(required = false) String cursor) {
+        return itemClient.getComments(itemId, userId, from, size, cursor);
     }
 
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> addComment(@PathVariable Long itemId,
-                                             @RequestHeader(OWNER_ID_HEADER) Long userId,
-                                             @Valid @RequestBody CommentDto commentDto) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> addComment(@PathVariable Long itemId,
+                                                             @RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                             @Valid @RequestBody CommentDto commentDto) {
         return itemClient.addComment(itemId, userId, commentDto);
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.exception.ErrorHandler;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user token-bucket rate limiting in front of the controllers. A request over the limit of
+ * its group is answered with 429 and a Retry-After in seconds, and counted as
+ * gateway.requests.limited {group}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RateLimitFilter implements WebFilter {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    private final boolean enabled;
+    private final List<Limit> limits;
+    private final Cache<String, AtomicLong> buckets;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.limits = properties.getGroups().stream()
+                .map(group -> new Limit(group, meterRegistry))
+                .collect(Collectors.toList());
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .recordStats()
+                .build();
+        this.objectMapper = objectMapper;
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer path = request.getPath().pathWithinApplication();
+        Limit limit = limits.stream()
+                .filter(candidate -> candidate.matches(path))
+                .findFirst()
+                .orElse(null);
+        if (limit == null) {
+            return chain.filter(exchange);
+        }
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(limit.name + ':' + caller(request), key -> limit.bucket.newState(now));
+        long wait = limit.bucket.tryAcquire(bucket, now);
+        if (wait == 0) {
+            return chain.filter(exchange);
+        }
+        limit.limited.increment();
+        return tooManyRequests(exchange.getResponse(), wait);
+    }
+
+    private Mono<Void> tooManyRequests(ServerHttpResponse response, long waitNanos) {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(ErrorHandler.ErrorResponse.builder()
+                    .error(String.format("Too many requests, retry in %d s.", retryAfter))
+                    .build());
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private static String caller(ServerHttpRequest request) {
+        String userId = request.getHeaders().getFirst(USER_ID_HEADER);
+        if (userId != null) {
+            return userId;
+        }
+        InetSocketAddress address = request.getRemoteAddress();
+        return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : "unknown";
+    }
+
+    private static class Limit {
+        private final String name;
+        private final List<PathPattern> paths;
+        private final TokenBucket bucket;
+        private final Counter limited;
+
+        Limit(RateLimitProperties.Group group, MeterRegistry meterRegistry) {
+            this.name = group.getName();
+            this.paths = group.getPaths().stream()
+                    .map(PathPatternParser.defaultInstance::parse)
+                    .collect(Collectors.toList());
+            this.bucket = new TokenBucket(group.getCapacity(), group.getPerSecond());
+            this.limited = meterRegistry.counter("gateway.requests.limited", "group", group.getName());
+        }
+
+        boolean matches(PathContainer path) {
+            return paths.stream().anyMatch(pattern -> pattern.matches(path));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate limits of the gateway. A request is charged to the first group with a matching path, per
+ * X-Sharer-User-Id, or per client address when the header is absent.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "shareit.gateway.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled;
+
+    /**
+     * Buckets kept at most; the least recently used ones are dropped first.
+     */
+    private long maxBuckets;
+
+    /**
+     * Buckets unused for this long are dropped. Should not be shorter than the time a group needs
+     * to refill completely, or a dropped bucket comes back fuller than it would have been.
+     */
+    private Duration idleTimeout;
+
+    private List<Group> groups = new ArrayList<>();
+
+    @Data
+    public static class Group {
+        private String name;
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Requests that may be made in a burst.
+         */
+        private int capacity;
+
+        /**
+         * Sustained requests per second.
+         */
+        private double perSecond;
+    }
+}
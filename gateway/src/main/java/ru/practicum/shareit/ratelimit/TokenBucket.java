@@ -0,0 +1,41 @@
+package ru.practicum.shareit.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp per caller (the generic cell rate algorithm): the
+ * moment the bucket will be full again, minus one token. Taking a token moves it forward by one
+ * emission interval with a compare-and-set, so concurrent requests of one caller never lock.
+ */
+class TokenBucket {
+    private final long interval;
+    private final long tolerance;
+
+    TokenBucket(int capacity, double perSecond) {
+        this.interval = (long) (1_000_000_000L / perSecond);
+        this.tolerance = (capacity - 1) * interval;
+    }
+
+    AtomicLong newState(long now) {
+        return new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token from the bucket.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquire(AtomicLong state, long now) {
+        while (true) {
+            long arrival = state.get();
+            long start = Math.max(arrival, now);
+            long wait = start - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (state.compareAndSet(arrival, start + interval)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,48 +1,59 @@
 package ru.practicum.shareit.request;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
+import ru.practicum.shareit.client.ServerInstances;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class ItemRequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
     @Autowired
-    public ItemRequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemRequestClient(WebClient.Builder builder, ResponseCache responseCache,
+                             RequestCoalescer requestCoalescer, ServerCallGuard serverCallGuard,
+                             ServerInstances serverInstances) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(ServerInstances.BASE_URL + API_PREFIX)
+                        .filter(serverCallGuard.forGroup("requests"))
+                        .filter(serverInstances.balancer())
+                        .build(),
+                responseCache,
+                requestCoalescer
         );
     }
 
-    public ResponseEntity<Object> createRequest(Long userId, ItemRequestDto itemRequestDto) {
-        return post("", userId, itemRequestDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createRequest(Long userId, ItemRequestDto itemRequestDto) {
+        return invalidateAfter(() -> post("", userId, itemRequestDto), ResponseCache.REQUESTS);
     }
 
-    public ResponseEntity<Object> getRequestById(Long userId, Long requestId) {
-        return get("/" + requestId, userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getRequestById(Long userId, Long requestId, String ifNoneMatch) {
+        return cachedGetIfNoneMatch(ResponseCache.REQUESTS, "/" + requestId, userId, ifNoneMatch);
     }
 
-    public ResponseEntity<Object> getAllUserRequest(Long userId) {
-        return get("", userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllUserRequest(Long userId) {
+        return cachedGet(ResponseCache.REQUESTS, "", userId, null);
     }
 
-    public ResponseEntity<Object> getAllRequest(Long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllRequest(Long userId, Integer from, Integer size, String cursor) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
-                "size", size
+                "size", size,
+                "cursor", Objects.requireNonNullElse(cursor, "")
         );
-        return get("/all?from={from}&&size={size}", userId, parameters);
+        return cachedGet(ResponseCache.REQUESTS, "/all?from={from}&size={size}&cursor={cursor}", userId, parameters);
     }
 }
\ No newline at end of file
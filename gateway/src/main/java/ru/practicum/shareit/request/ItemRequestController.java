@@ -1,6 +1,8 @@
 package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -11,6 +13,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.Marker;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
@@ -26,28 +30,31 @@ public class ItemRequestController {
     private final ItemRequestClient itemRequestClient;
 
     @PostMapping
-    public ResponseEntity<Object> createRequest(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                @Validated({Marker.OnCreate.class}) @RequestBody ItemRequestDto itemRequestDto) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createRequest(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                @Validated({Marker.OnCreate.class}) @RequestBody ItemRequestDto itemRequestDto) {
         return itemRequestClient.createRequest(userId, itemRequestDto);
     }
 
     @GetMapping("{requestId}")
-    public ResponseEntity<Object> getRequestById(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                 @PathVariable Long requestId) {
-        return itemRequestClient.getRequestById(userId, requestId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getRequestById(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                 @PathVariable Long requestId,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                                 String ifNoneMatch) {
+        return itemRequestClient.getRequestById(userId, requestId, ifNoneMatch);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllUserRequest(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllUserRequest(
             @RequestHeader(OWNER_ID_HEADER) Long userId) {
         return itemRequestClient.getAllUserRequest(userId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> getAllRequests(
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllRequests(
             @RequestHeader(OWNER_ID_HEADER) Long userId,
             @PositiveOrZero @RequestParam(defaultValue = "0") Integer from,
-            @Positive @RequestParam(defaultValue = "10") Integer size) {
-        return itemRequestClient.getAllRequest(userId, from, size);
+            @Positive @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor) {
+        return itemRequestClient.getAllRequest(userId, from, size, cursor);
     }
 }
\ No newline at end of file
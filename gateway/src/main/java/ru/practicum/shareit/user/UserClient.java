@@ -1,13 +1,17 @@
 package ru.practicum.shareit.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
+import ru.practicum.shareit.client.ServerInstances;
 import ru.practicum.shareit.user.dto.UserDto;
 
 @Service
@@ -15,32 +19,43 @@ public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(WebClient.Builder builder, ResponseCache responseCache,
+                      RequestCoalescer requestCoalescer, ServerCallGuard serverCallGuard,
+                      ServerInstances serverInstances) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(ServerInstances.BASE_URL + API_PREFIX)
+                        .filter(serverCallGuard.forGroup("users"))
+                        .filter(serverInstances.balancer())
+                        .build(),
+                responseCache,
+                requestCoalescer
         );
     }
 
-    public ResponseEntity<Object> createUser(UserDto userDto) {
-        return post("", userDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createUser(UserDto userDto) {
+        return invalidateAfter(() -> post("", userDto), ResponseCache.USERS);
     }
 
-    public ResponseEntity<Object> getUserById(Long userId) {
-        return get("/" + userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getUserById(Long userId) {
+        return cachedGetOne(ResponseCache.USERS, "/" + userId, null);
     }
 
-    public ResponseEntity<Object> getAllUsers() {
-        return get("");
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllUsers() {
+        return cachedGet(ResponseCache.USERS, "", null, null);
     }
 
-    public ResponseEntity<Object> updateUser(UserDto userDto, Long userId) {
-        return patch("/" + userId, userDto);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateUser(UserDto userDto, Long userId) {
+        return invalidateAfter(() -> patch("/" + userId, userDto),
+                ResponseCache.USERS, ResponseCache.ITEMS, ResponseCache.REQUESTS);
     }
 
-    public ResponseEntity<Object> deleteUser(long userId) {
-        return delete("/" + userId);
+    public Mono<ResponseEntity<Flux<DataBuffer>>> deleteUser(long userId) {
+        return invalidateAfter(() -> delete("/" + userId),
+                ResponseCache.USERS, ResponseCache.ITEMS, ResponseCache.REQUESTS);
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> importUsers(Flux<DataBuffer> body) {
+        return invalidateAfter(() -> postStream("/import", null, body), ResponseCache.USERS);
     }
 }
\ No newline at end of file
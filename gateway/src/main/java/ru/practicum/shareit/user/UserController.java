@@ -1,6 +1,8 @@
 package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -11,39 +13,54 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.Marker;
+import ru.practicum.shareit.bulk.ImportError;
+import ru.practicum.shareit.bulk.NdjsonValidator;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Controller
 @RequestMapping(path = "/users")
 @RequiredArgsConstructor
 @Validated
 public class UserController {
     private final UserClient userClient;
+    private final NdjsonValidator ndjsonValidator;
 
     @PostMapping
-    public ResponseEntity<Object> createUser(@Validated({Marker.OnCreate.class}) @RequestBody UserDto userDto) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createUser(@Validated({Marker.OnCreate.class}) @RequestBody UserDto userDto) {
         return userClient.createUser(userDto);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> importUsers(@RequestBody Flux<DataBuffer> body) {
+        List<ImportError> errors = new ArrayList<>();
+        return userClient.importUsers(ndjsonValidator.filter(body, UserDto.class, Marker.OnCreate.class, errors))
+                .flatMap(response -> ndjsonValidator.merge(response, errors));
+    }
+
     @GetMapping("{id}")
-    public ResponseEntity<Object> getUserById(@PathVariable("id") Long userId) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getUserById(@PathVariable("id") Long userId) {
         return userClient.getUserById(userId);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getUsers() {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getUsers() {
         return userClient.getAllUsers();
     }
 
     @PatchMapping("{id}")
-    public ResponseEntity<Object> updateUser(@Validated({Marker.OnUpdate.class}) @RequestBody UserDto userDto,
-                                             @PathVariable("id") Long userId) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateUser(@Validated({Marker.OnUpdate.class}) @RequestBody UserDto userDto,
+                                                             @PathVariable("id") Long userId) {
         return userClient.updateUser(userDto, userId);
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<Object> deleteUser(@PathVariable("id") Long userId) {
+    public Mono<ResponseEntity<Flux<DataBuffer>>> deleteUser(@PathVariable("id") Long userId) {
         return userClient.deleteUser(userId);
     }
 }
\ No newline at end of file
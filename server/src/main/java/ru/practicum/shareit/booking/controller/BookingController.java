@@ -2,6 +2,8 @@ package ru.practicum.shareit.booking.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,6 +13,8 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.dto.InputBookingDto;
 import ru.practicum.shareit.booking.dto.OutputBookingDto;
 import ru.practicum.shareit.booking.service.BookingService;
@@ -33,27 +37,45 @@ public class BookingController {
     }
 
     @GetMapping("/{bookingId}")
-    public OutputBookingDto findById(@RequestHeader(OWNER_ID_HEADER) Long userId, @PathVariable Long bookingId) {
+    public OutputBookingDto findById(@RequestHeader(OWNER_ID_HEADER) Long userId, @PathVariable Long bookingId,
+                                     WebRequest request) {
         log.info("Received a GET-request to the endpoint: '/bookings' to get a booking with ID = {}", bookingId);
+        if (request.checkNotModified(bookingService.findBookingTag(bookingId, userId))) {
+            return null;
+        }
         return bookingService.findBookingById(bookingId, userId);
     }
 
     @GetMapping
-    public List<OutputBookingDto> findByUserId(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                               @RequestParam(defaultValue = "ALL") String state,
-                                               @RequestParam(defaultValue = "0") Integer from,
-                                               @RequestParam(defaultValue = "10") Integer size) {
+    public ResponseEntity<List<OutputBookingDto>> findByUserId(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                               @RequestParam(defaultValue = "ALL") String state,
+                                                               @RequestParam(defaultValue = "0") Integer from,
+                                                               @RequestParam(defaultValue = "10") Integer size,
+                                                               @RequestParam(required = false) String cursor) {
         log.info("Received a GET-request to the endpoint: '/bookings' to get all booking of user with ID = {}", userId);
-        return bookingService.findAllBookingsByUser(state, userId, from, size);
+        return bookingService.findAllBookingsByUser(state, userId, from, size, cursor).toResponse();
     }
 
     @GetMapping("/owner")
-    public List<OutputBookingDto> findByOwnerId(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                                @RequestParam(defaultValue = "ALL") String state,
-                                                @RequestParam(defaultValue = "0") Integer from,
-                                                @RequestParam(defaultValue = "10") Integer size) {
+    public ResponseEntity<List<OutputBookingDto>> findByOwnerId(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                                @RequestParam(defaultValue = "ALL") String state,
+                                                                @RequestParam(defaultValue = "0") Integer from,
+                                                                @RequestParam(defaultValue = "10") Integer size,
+                                                                @RequestParam(required = false) String cursor) {
         log.info("Received a GET-request to the endpoint: '/bookings' to get all booking of owner with ID = {}", userId);
-        return bookingService.findAllBookingsByOwner(state, userId, from, size);
+        return bookingService.findAllBookingsByOwner(state, userId, from, size, cursor).toResponse();
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportByUserId(@RequestHeader(OWNER_ID_HEADER) Long userId) {
+        log.info("Received a GET-request to the endpoint: '/bookings/export' to export bookings of user with ID = {}", userId);
+        return bookingService.exportBookings(userId, false);
+    }
+
+    @GetMapping(value = "/owner/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportByOwnerId(@RequestHeader(OWNER_ID_HEADER) Long userId) {
+        log.info("Received a GET-request to the endpoint: '/bookings/owner/export' to export bookings of owner with ID = {}", userId);
+        return bookingService.exportBookings(userId, true);
     }
 
     @PatchMapping("/{bookingId}")
@@ -1,8 +1,15 @@
 package ru.practicum.shareit.booking.model;
 
+import java.util.List;
+
 public enum BookingStatus {
     WAITING,
     APPROVED,
     REJECTED,
-    COMPLETED
-}
\ No newline at end of file
+    COMPLETED;
+
+    /**
+     * Statuses of bookings that hold their period: a new booking of the item may not overlap them.
+     */
+    public static final List<BookingStatus> ACTIVE_STATUSES = List.of(WAITING, APPROVED);
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.booking.repository;
+
+/**
+ * Columns needed to admit a new booking and render the response: the booker, the item
+ * (item columns are null when the item does not exist) and how many active bookings of the
+ * item overlap the requested period.
+ */
+public interface BookingAdmission {
+    Long getBookerId();
+
+    String getBookerName();
+
+    String getBookerEmail();
+
+    Long getBookerVersion();
+
+    Long getItemId();
+
+    String getItemName();
+
+    String getItemDescription();
+
+    Boolean getItemAvailable();
+
+    Long getItemOwnerId();
+
+    Long getItemRequestId();
+
+    Long getItemVersion();
+
+    Long getItemOverlaps();
+}
@@ -1,89 +1,221 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    @Modifying
-    @Query("UPDATE Booking b "
-            + "SET b.status = :status  "
+    @Override
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    Optional<Booking> findById(Long bookingId);
+
+    /**
+     * Reads everything a new booking from start to end needs, including the number of bookings
+     * of the item in the given statuses that overlap the period. Run it after the item row is
+     * locked: the overlap count is only final once competing bookings of the item have committed.
+     */
+    @Query("SELECT u.id AS bookerId, u.name AS bookerName, u.email AS bookerEmail, u.version AS bookerVersion, "
+            + "i.id AS itemId, i.name AS itemName, i.description AS itemDescription, "
+            + "i.available AS itemAvailable, i.ownerId AS itemOwnerId, r.id AS itemRequestId, i.version AS itemVersion, "
+            + "(SELECT COUNT(b.id) FROM Booking b WHERE b.item.id = :itemId AND b.status IN :statuses "
+            + "AND b.start < :end AND b.end > :start) AS itemOverlaps "
+            + "FROM User u "
+            + "LEFT JOIN Item i ON i.id = :itemId "
+            + "LEFT JOIN i.itemRequest r "
+            + "WHERE u.id = :bookerId")
+    Optional<BookingAdmission> findAdmission(Long bookerId, Long itemId, List<BookingStatus> statuses,
+                                             LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT b.booker.id AS bookerId, i.ownerId AS ownerId, b.version AS version, "
+            + "i.version AS itemVersion, u.version AS bookerVersion "
+            + "FROM Booking b JOIN b.item i JOIN b.booker u "
             + "WHERE b.id = :bookingId")
-    void save(BookingStatus status, Long bookingId);
-
-    List<Booking> findByBookerIdOrderByStartDesc(Long id, Pageable page);
-
-    List<Booking> findByBookerIdAndStatusIsOrderByStartDesc(Long id, BookingStatus status, Pageable page);
-
-    List<Booking> findByBookerIdAndEndIsAfterAndStartIsBeforeOrderByStartDesc(Long id,
-                                                                              LocalDateTime end,
-                                                                              LocalDateTime start,
-                                                                              Pageable page);
-
-    List<Booking> findByBookerIdAndEndIsBeforeOrderByStartDesc(Long id, LocalDateTime time, Pageable page);
+    Optional<BookingStamp> findStamp(Long bookingId);
 
-    List<Booking> findByBookerIdAndStartIsAfterOrderByStartDesc(Long id, LocalDateTime time, Pageable page);
+    /**
+     * Decides a waiting booking of the owner's item. Returns 0 when the booking does not exist,
+     * belongs to another owner or has already been decided.
+     */
+    @Modifying
+    @Query("UPDATE Booking b "
+            + "SET b.status = :status, b.version = b.version + 1 "
+            + "WHERE b.id = :bookingId "
+            + "AND b.status = ru.practicum.shareit.booking.model.BookingStatus.WAITING "
+            + "AND b.item.id IN (SELECT i.id FROM Item i WHERE i.ownerId = :ownerId)")
+    int decide(Long bookingId, Long ownerId, BookingStatus status);
 
-    List<Booking> findByBookerIdAndStartIsAfterAndStatusIsOrderByStartDesc(Long bookerId,
-                                                                           LocalDateTime start,
-                                                                           BookingStatus status,
-                                                                           Pageable page);
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    @Query("SELECT b FROM Booking b "
+            + "WHERE b.booker.id = :bookerId "
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findByBookerId(Long bookerId, LocalDateTime cursorStart, Long cursorId, Pageable page);
 
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    @Query("SELECT b FROM Booking b "
+            + "WHERE b.booker.id = :bookerId "
+            + "AND b.start < :time AND b.end > :time "
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findCurrentBookingsBooker(Long bookerId,
+                                            LocalDateTime time,
+                                            LocalDateTime cursorStart,
+                                            Long cursorId,
+                                            Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    @Query("SELECT b FROM Booking b "
+            + "WHERE b.booker.id = :bookerId "
+            + "AND b.end < :time "
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findPastBookingsBooker(Long bookerId,
+                                         LocalDateTime time,
+                                         LocalDateTime cursorStart,
+                                         Long cursorId,
+                                         Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    @Query("SELECT b FROM Booking b "
+            + "WHERE b.booker.id = :bookerId "
+            + "AND b.start > :time "
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findFutureBookingsBooker(Long bookerId,
+                                           LocalDateTime time,
+                                           LocalDateTime cursorStart,
+                                           Long cursorId,
+                                           Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
+            + "WHERE b.booker.id = :bookerId "
+            + "AND b.start > :time AND b.status = :status "
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findWaitingBookingsBooker(Long bookerId,
+                                            LocalDateTime time,
+                                            BookingStatus status,
+                                            LocalDateTime cursorStart,
+                                            Long cursorId,
+                                            Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    @Query("SELECT b FROM Booking b "
+            + "WHERE b.booker.id = :bookerId "
+            + "AND b.status = :status "
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findRejectedBookingsBooker(Long bookerId,
+                                             BookingStatus status,
+                                             LocalDateTime cursorStart,
+                                             Long cursorId,
+                                             Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    @Query("SELECT b FROM Booking b "
+            + "JOIN b.item i "
             + "WHERE i.ownerId = :ownerId "
-            + "ORDER BY b.start DESC")
-    List<Booking> findByItemOwnerId(Long ownerId, Pageable page);
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findByItemOwnerId(Long ownerId, LocalDateTime cursorStart, Long cursorId, Pageable page);
 
+    @EntityGraph(Booking.DETAILS_GRAPH)
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
+            + "JOIN b.item i "
             + "WHERE i.ownerId = :ownerId "
             + "AND :time between b.start AND b.end "
-            + "ORDER BY b.start DESC")
-    List<Booking> findCurrentBookingsOwner(Long ownerId, LocalDateTime time, Pageable page);
-
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findCurrentBookingsOwner(Long ownerId,
+                                           LocalDateTime time,
+                                           LocalDateTime cursorStart,
+                                           Long cursorId,
+                                           Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
+            + "JOIN b.item i "
             + "WHERE i.ownerId = :ownerId "
             + "AND b.end < :time "
-            + "ORDER BY b.start DESC")
-    List<Booking> findPastBookingsOwner(Long ownerId, LocalDateTime time, Pageable page);
-
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findPastBookingsOwner(Long ownerId,
+                                        LocalDateTime time,
+                                        LocalDateTime cursorStart,
+                                        Long cursorId,
+                                        Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
+            + "JOIN b.item i "
             + "WHERE i.ownerId = :ownerId "
             + "AND b.start > :time "
-            + "ORDER BY b.start DESC")
-    List<Booking> findFutureBookingsOwner(Long ownerId, LocalDateTime time, Pageable page);
-
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findFutureBookingsOwner(Long ownerId,
+                                          LocalDateTime time,
+                                          LocalDateTime cursorStart,
+                                          Long cursorId,
+                                          Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
+            + "JOIN b.item i "
             + "WHERE i.ownerId = :ownerId "
             + "AND b.start > :time AND b.status = :status "
-            + "ORDER BY b.start DESC")
-    List<Booking> findWaitingBookingsOwner(Long ownerId, LocalDateTime time, BookingStatus status, Pageable page);
-
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findWaitingBookingsOwner(Long ownerId,
+                                           LocalDateTime time,
+                                           BookingStatus status,
+                                           LocalDateTime cursorStart,
+                                           Long cursorId,
+                                           Pageable page);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
+            + "JOIN b.item i "
             + "WHERE i.ownerId = :ownerId "
             + "AND b.status = :status "
-            + "ORDER BY b.start DESC")
-    List<Booking> findRejectedBookingsOwner(Long ownerId, BookingStatus status, Pageable page);
+            + "AND (b.start < :cursorStart OR (b.start = :cursorStart AND b.id < :cursorId)) "
+            + "ORDER BY b.start DESC, b.id DESC")
+    List<Booking> findRejectedBookingsOwner(Long ownerId,
+                                            BookingStatus status,
+                                            LocalDateTime cursorStart,
+                                            Long cursorId,
+                                            Pageable page);
 
     @Query("SELECT b FROM Booking b "
-            + "INNER JOIN Item i ON b.item.id = i.id "
-            + "WHERE i.id = :itemId "
-            + "ORDER BY b.start DESC")
-    List<Booking> findBookingsItem(Long itemId);
+            + "WHERE b.item.id IN :itemIds "
+            + "AND b.status <> :status "
+            + "AND (b.start >= :time "
+            + "OR b.start = (SELECT MAX(p.start) FROM Booking p "
+            + "WHERE p.item.id = b.item.id AND p.status <> :status AND p.start < :time))")
+    List<Booking> findTimelineBookings(Collection<Long> itemIds, BookingStatus status, LocalDateTime time);
+
+    @Query("SELECT new ru.practicum.shareit.item.dto.TimeSlotDto(b.start, b.end) FROM Booking b "
+            + "WHERE b.item.id = :itemId "
+            + "AND b.status IN :statuses "
+            + "AND b.start < :to AND b.end > :from "
+            + "ORDER BY b.start")
+    List<TimeSlotDto> findBusySlots(Long itemId,
+                                    List<BookingStatus> statuses,
+                                    LocalDateTime from,
+                                    LocalDateTime to);
 
     List<Booking> findByItemIdAndBookerIdAndStatusIsAndEndIsBefore(Long itemId,
                                                                    Long bookerId,
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.repository;
+
+/**
+ * Versions of everything a booking view is built from, used to derive its ETag.
+ */
+public interface BookingStamp {
+    Long getBookerId();
+
+    Long getOwnerId();
+
+    Long getVersion();
+
+    Long getItemVersion();
+
+    Long getBookerVersion();
+}
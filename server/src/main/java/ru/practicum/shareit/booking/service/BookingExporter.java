@@ -0,0 +1,95 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.OutputBookingDto;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes the booking history of a booker or an owner as newline-delimited JSON. Rows are read
+ * from a server-side cursor inside a read-only transaction and written one at a time, so the
+ * heap used does not depend on the number of bookings exported.
+ */
+@Component
+public class BookingExporter {
+    private static final String SELECT = "SELECT b.id, b.start_date, b.end_date, b.status, "
+            + "i.id AS item_id, i.name AS item_name, i.description, i.is_available, i.request_id, "
+            + "u.id AS booker_id, u.name AS booker_name, u.email "
+            + "FROM bookings b "
+            + "JOIN items i ON i.id = b.item_id "
+            + "JOIN users u ON u.id = b.booker_id ";
+    private static final String BY_BOOKER = SELECT + "WHERE b.booker_id = ? ORDER BY b.start_date DESC, b.id DESC";
+    private static final String BY_OWNER = SELECT + "WHERE i.owner_id = ? ORDER BY b.start_date DESC, b.id DESC";
+    private static final int FLUSH_EVERY = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public BookingExporter(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper,
+                           @Value("${shareit.export.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(Long userId, boolean owner, OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(owner ? BY_OWNER : BY_BOOKER,
+                    resultSet -> {
+                        try {
+                            objectMapper.writeValue(generator, toBookingDto(resultSet));
+                            generator.writeRaw('\n');
+                            if (resultSet.getRow() % FLUSH_EVERY == 0) {
+                                generator.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, userId));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static OutputBookingDto toBookingDto(ResultSet resultSet) throws SQLException {
+        return OutputBookingDto.builder()
+                .id(resultSet.getLong("id"))
+                .start(resultSet.getTimestamp("start_date").toLocalDateTime())
+                .end(resultSet.getTimestamp("end_date").toLocalDateTime())
+                .status(BookingStatus.valueOf(resultSet.getString("status")))
+                .item(ItemDto.builder()
+                        .id(resultSet.getLong("item_id"))
+                        .name(resultSet.getString("item_name"))
+                        .description(resultSet.getString("description"))
+                        .available(resultSet.getBoolean("is_available"))
+                        .requestId(resultSet.getObject("request_id", Long.class))
+                        .build())
+                .booker(UserDto.builder()
+                        .id(resultSet.getLong("booker_id"))
+                        .name(resultSet.getString("booker_name"))
+                        .email(resultSet.getString("email"))
+                        .build())
+                .build();
+    }
+}
@@ -1,18 +1,27 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.dto.InputBookingDto;
 import ru.practicum.shareit.booking.dto.OutputBookingDto;
-
-import java.util.List;
+import ru.practicum.shareit.pagination.CursorPage;
 
 public interface BookingService {
     OutputBookingDto create(InputBookingDto bookingDtoShort, Long bookerId);
 
     OutputBookingDto findBookingById(Long bookingId, Long userId);
 
-    List<OutputBookingDto> findAllBookingsByUser(String state, Long userId, Integer from, Integer size);
+    /**
+     * ETag of the booking view for the user, or null when the booking cannot be viewed.
+     */
+    String findBookingTag(Long bookingId, Long userId);
+
+    CursorPage<OutputBookingDto> findAllBookingsByUser(String state, Long userId, Integer from, Integer size,
+                                                       String cursor);
 
-    List<OutputBookingDto> findAllBookingsByOwner(String state, Long ownerId, Integer from, Integer size);
+    CursorPage<OutputBookingDto> findAllBookingsByOwner(String state, Long ownerId, Integer from, Integer size,
+                                                        String cursor);
 
     OutputBookingDto approve(long bookingId, long userId, Boolean approve);
+
+    StreamingResponseBody exportBookings(Long userId, boolean owner);
 }
\ No newline at end of file
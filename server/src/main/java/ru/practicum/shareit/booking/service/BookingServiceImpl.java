@@ -1,26 +1,32 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.AllArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.dto.InputBookingDto;
 import ru.practicum.shareit.booking.dto.OutputBookingDto;
+import ru.practicum.shareit.booking.dto.ShortItemBookingDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingAdmission;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.config.CacheEvents;
 import ru.practicum.shareit.exception.AlreadyExistsException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotAvailableException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.OperationAccessException;
 import ru.practicum.shareit.exception.TimeDataException;
-import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.item.service.ItemService;
-import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
@@ -32,7 +38,10 @@ import java.util.List;
 public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
     private final UserService userService;
-    private final ItemService itemService;
+    private final BookingTimeline bookingTimeline;
+    private final ItemRepository itemRepository;
+    private final BookingExporter bookingExporter;
+    private final CacheEvents cacheEvents;
 
     @Override
     @Transactional
@@ -43,12 +52,41 @@ public class BookingServiceImpl implements BookingService {
                     .format("Invalid booking time start = %s  end = %s",
                             bookingDtoShort.getStart(), bookingDtoShort.getEnd()));
         }
-        User booker = UserMapper.toUser(userService.findUserById(bookerId));
-        Item item = ItemMapper.toItem(itemService.findItemById(bookingDtoShort.getItemId(), bookerId));
-        if (itemService.findOwnerId(item.getId()).equals(bookerId)) {
+        Long itemId = bookingDtoShort.getItemId();
+        // The lock has to be its own statement: a statement reads the rows as of its start, so an
+        // overlap check sharing it would miss the booking whose commit released the lock.
+        itemRepository.lockById(itemId);
+        BookingAdmission admission = bookingRepository.findAdmission(bookerId, itemId, BookingStatus.ACTIVE_STATUSES,
+                        bookingDtoShort.getStart(), bookingDtoShort.getEnd())
+                .orElseThrow(() -> new NotFoundException(String.format("User with ID = %d not found.", bookerId)));
+        if (admission.getItemId() == null) {
+            throw new NotFoundException(String.format("Item with ID = %d not found.", itemId));
+        }
+        if (admission.getItemOwnerId().equals(bookerId)) {
             throw new OperationAccessException("The owner cannot be a booker.");
         }
-        if (item.getAvailable()) {
+        if (admission.getItemAvailable()) {
+            if (admission.getItemOverlaps() > 0) {
+                throw new NotAvailableException(String.format("Item with ID = %d is not available from %s to %s.",
+                        itemId, bookingDtoShort.getStart(), bookingDtoShort.getEnd()));
+            }
+            Item item = Item.builder()
+                    .id(itemId)
+                    .name(admission.getItemName())
+                    .description(admission.getItemDescription())
+                    .available(true)
+                    .ownerId(admission.getItemOwnerId())
+                    .version(admission.getItemVersion())
+                    .itemRequest(admission.getItemRequestId() != null
+                            ? ItemRequest.builder().id(admission.getItemRequestId()).build()
+                            : null)
+                    .build();
+            User booker = User.builder()
+                    .id(bookerId)
+                    .name(admission.getBookerName())
+                    .email(admission.getBookerEmail())
+                    .version(admission.getBookerVersion())
+                    .build();
             Booking booking = Booking.builder()
                     .start(bookingDtoShort.getStart())
                     .end(bookingDtoShort.getEnd())
@@ -56,12 +94,25 @@ public class BookingServiceImpl implements BookingService {
                     .booker(booker)
                     .status(BookingStatus.WAITING)
                     .build();
-            return BookingMapper.toBookingDto(bookingRepository.save(booking));
+            bookingRepository.save(booking);
+            bookingTimeline.add(item.getId(), BookingMapper.toItemBookingDto(booking));
+            cacheEvents.itemChanged(item.getId());
+            return BookingMapper.toBookingDto(booking);
         } else {
-            throw new NotAvailableException(String.format("Item with ID = %d is not available.", item.getId()));
+            throw new NotAvailableException(String.format("Item with ID = %d is not available.", itemId));
         }
     }
 
+    @Override
+    @Transactional
+    public String findBookingTag(Long bookingId, Long userId) {
+        return bookingRepository.findStamp(bookingId)
+                .filter(stamp -> stamp.getBookerId().equals(userId) || stamp.getOwnerId().equals(userId))
+                .map(stamp -> String.format("booking-%d-%d-%d-%d", bookingId, stamp.getVersion(),
+                        stamp.getItemVersion(), stamp.getBookerVersion()))
+                .orElse(null);
+    }
+
     @Override
     @Transactional
     public OutputBookingDto findBookingById(Long bookingId, Long userId) {
@@ -76,32 +127,38 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     @Transactional
-    public List<OutputBookingDto> findAllBookingsByUser(String state, Long userId, Integer from, Integer size) {
+    public CursorPage<OutputBookingDto> findAllBookingsByUser(String state, Long userId, Integer from, Integer size,
+                                                              String cursor) {
         userService.findUserById(userId);
-        Pageable page = PageRequest.of(from / size, size);
+        BookingState bookingState = validState(state);
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = OffsetPageRequest.of(after == null ? from : 0, size);
+        LocalDateTime cursorStart = after == null ? PageCursor.MAX_TIME : after.getTime();
+        Long cursorId = after == null ? Long.MAX_VALUE : after.getId();
         LocalDateTime now = LocalDateTime.now();
-        switch (validState(state)) {
-            case ALL:
-                return BookingMapper.toBookingDto(bookingRepository.findByBookerIdOrderByStartDesc(userId, page));
+        List<Booking> bookings;
+        switch (bookingState) {
             case CURRENT:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findByBookerIdAndEndIsAfterAndStartIsBeforeOrderByStartDesc(userId, now, now, page));
+                bookings = bookingRepository.findCurrentBookingsBooker(userId, now, cursorStart, cursorId, page);
+                break;
             case PAST:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findByBookerIdAndEndIsBeforeOrderByStartDesc(userId, now, page));
+                bookings = bookingRepository.findPastBookingsBooker(userId, now, cursorStart, cursorId, page);
+                break;
             case FUTURE:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findByBookerIdAndStartIsAfterOrderByStartDesc(userId, now, page));
+                bookings = bookingRepository.findFutureBookingsBooker(userId, now, cursorStart, cursorId, page);
+                break;
             case WAITING:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findByBookerIdAndStartIsAfterAndStatusIsOrderByStartDesc(userId, now,
-                                BookingStatus.WAITING, page));
+                bookings = bookingRepository.findWaitingBookingsBooker(userId, now, BookingStatus.WAITING,
+                        cursorStart, cursorId, page);
+                break;
             case REJECTED:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findByBookerIdAndStatusIsOrderByStartDesc(userId, BookingStatus.REJECTED, page));
-
+                bookings = bookingRepository.findRejectedBookingsBooker(userId, BookingStatus.REJECTED,
+                        cursorStart, cursorId, page);
+                break;
+            default:
+                bookings = bookingRepository.findByBookerId(userId, cursorStart, cursorId, page);
         }
-        throw new IllegalArgumentException("Unknown state: " + state);
+        return toPage(bookings, size);
     }
 
     private BookingState validState(String bookingState) {
@@ -114,48 +171,87 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     @Transactional
-    public List<OutputBookingDto> findAllBookingsByOwner(String state, Long ownerId, Integer from, Integer size) {
+    public CursorPage<OutputBookingDto> findAllBookingsByOwner(String state, Long ownerId, Integer from, Integer size,
+                                                               String cursor) {
         userService.findUserById(ownerId);
-        Pageable page = PageRequest.of(from / size, size);
+        BookingState bookingState = validState(state);
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = OffsetPageRequest.of(after == null ? from : 0, size);
+        LocalDateTime cursorStart = after == null ? PageCursor.MAX_TIME : after.getTime();
+        Long cursorId = after == null ? Long.MAX_VALUE : after.getId();
         LocalDateTime now = LocalDateTime.now();
-        switch (validState(state)) {
-            case ALL:
-                return BookingMapper.toBookingDto(bookingRepository.findByItemOwnerId(ownerId, page));
+        List<Booking> bookings;
+        switch (bookingState) {
             case CURRENT:
-                return BookingMapper.toBookingDto(bookingRepository.findCurrentBookingsOwner(ownerId, now, page));
+                bookings = bookingRepository.findCurrentBookingsOwner(ownerId, now, cursorStart, cursorId, page);
+                break;
             case PAST:
-                return BookingMapper.toBookingDto(bookingRepository.findPastBookingsOwner(ownerId, now, page));
+                bookings = bookingRepository.findPastBookingsOwner(ownerId, now, cursorStart, cursorId, page);
+                break;
             case FUTURE:
-                return BookingMapper.toBookingDto(bookingRepository.findFutureBookingsOwner(ownerId, now, page));
+                bookings = bookingRepository.findFutureBookingsOwner(ownerId, now, cursorStart, cursorId, page);
+                break;
             case WAITING:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findWaitingBookingsOwner(ownerId, now, BookingStatus.WAITING, page));
+                bookings = bookingRepository.findWaitingBookingsOwner(ownerId, now, BookingStatus.WAITING,
+                        cursorStart, cursorId, page);
+                break;
             case REJECTED:
-                return BookingMapper.toBookingDto(bookingRepository
-                        .findRejectedBookingsOwner(ownerId, BookingStatus.REJECTED, page));
+                bookings = bookingRepository.findRejectedBookingsOwner(ownerId, BookingStatus.REJECTED,
+                        cursorStart, cursorId, page);
+                break;
+            default:
+                bookings = bookingRepository.findByItemOwnerId(ownerId, cursorStart, cursorId, page);
         }
-        throw new IllegalArgumentException("Unknown state: " + state);
+        return toPage(bookings, size);
+    }
+
+    private CursorPage<OutputBookingDto> toPage(List<Booking> bookings, int size) {
+        return CursorPage.of(BookingMapper.toBookingDto(bookings), size,
+                booking -> PageCursor.of(booking.getStart(), booking.getId()));
+    }
+
+    @Override
+    @Transactional
+    public StreamingResponseBody exportBookings(Long userId, boolean owner) {
+        userService.findUserById(userId);
+        return output -> bookingExporter.write(userId, owner, output);
     }
 
     @Override
     @Transactional
     public OutputBookingDto approve(long bookingId, long userId, Boolean approve) {
-        OutputBookingDto booking = findBookingById(bookingId, userId);
-        Long ownerId = itemService.findOwnerId(booking.getItem().getId());
-        if (ownerId.equals(userId)
-                && booking.getStatus().equals(BookingStatus.APPROVED)) {
+        BookingStatus status = approve ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        Booking stored = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new NotFoundException(String.format("Booking with ID = %d not found.", bookingId)));
+        if (!stored.getItem().getOwnerId().equals(userId)) {
+            throw new OperationAccessException(String.format("User with ID = %d is not the owner, no access to booking.", userId));
+        }
+        if (stored.getStatus() == status) {
             throw new AlreadyExistsException("The booking decision has already been made.");
         }
-        if (!ownerId.equals(userId)) {
-            throw new OperationAccessException(String.format("User with ID = %d is not the owner, no access to booking.", userId));
+        if (stored.getStatus() != BookingStatus.WAITING) {
+            throw new ConflictException(String.format("Booking with ID = %d has already been decided, its status is %s.",
+                    bookingId, stored.getStatus()));
+        }
+        if (bookingRepository.decide(bookingId, userId, status) == 0) {
+            throw new ConflictException(String.format("Booking with ID = %d was decided by a concurrent request.",
+                    bookingId));
         }
+        // The new status goes on the response only: set on the loaded booking, it would be
+        // flushed as a second update at commit.
+        OutputBookingDto booking = BookingMapper.toBookingDto(stored);
+        booking.setStatus(status);
         if (approve) {
-            booking.setStatus(BookingStatus.APPROVED);
-            bookingRepository.save(BookingStatus.APPROVED, bookingId);
+            bookingTimeline.add(booking.getItem().getId(), ShortItemBookingDto.builder()
+                    .id(booking.getId())
+                    .bookerId(booking.getBooker().getId())
+                    .start(booking.getStart())
+                    .end(booking.getEnd())
+                    .build());
         } else {
-            booking.setStatus(BookingStatus.REJECTED);
-            bookingRepository.save(BookingStatus.REJECTED, bookingId);
+            bookingTimeline.remove(booking.getItem().getId(), bookingId);
         }
+        cacheEvents.itemChanged(booking.getItem().getId());
         return booking;
     }
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+package ru.practicum.shareit.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dto.ShortItemBookingDto;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+/**
+ * Per-item ordered view of non-rejected bookings used to answer lastBooking/nextBooking
+ * without scanning the booking history. A timeline is seeded on first use with the latest
+ * started booking and every booking starting later, then kept current by booking writes once
+ * they commit. Timelines are held in a bounded cache, see shareit.cache.booking-timelines.spec.
+ * A timeline loaded while a write of its item, or a user delete, committed is used for that read
+ * but not cached.
+ */
+@Component
+public class BookingTimeline {
+    private static final int STRIPES = 1024;
+
+    private final BookingRepository bookingRepository;
+    private final Cache<Long, ItemTimeline> timelines;
+    private final AtomicLongArray changes = new AtomicLongArray(STRIPES);
+    private final AtomicLong allChanges = new AtomicLong();
+
+    public BookingTimeline(BookingRepository bookingRepository,
+                           @Value("${shareit.cache.booking-timelines.spec}") String spec,
+                           MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.timelines = Caffeine.from(spec).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, timelines, "bookingTimelines");
+    }
+
+    public ShortItemBookingDto findLast(Long itemId, LocalDateTime now) {
+        return timeline(itemId).findLast(now);
+    }
+
+    public ShortItemBookingDto findNext(Long itemId, LocalDateTime now) {
+        return timeline(itemId).findNext(now);
+    }
+
+    public void preload(Collection<Long> itemIds) {
+        long allSeen = allChanges.get();
+        Map<Long, Long> missing = new HashMap<>();
+        itemIds.stream()
+                .filter(itemId -> timelines.getIfPresent(itemId) == null)
+                .forEach(itemId -> missing.put(itemId, changes.get(stripe(itemId))));
+        if (missing.isEmpty()) {
+            return;
+        }
+        load(missing.keySet()).forEach((itemId, loaded) -> keep(itemId, loaded, allSeen, missing.get(itemId)));
+    }
+
+    public void add(Long itemId, ShortItemBookingDto booking) {
+        afterCommit(itemId, timeline -> {
+            timeline.add(booking);
+            return true;
+        });
+    }
+
+    /**
+     * A timeline that no longer holds everything it needs after the removal is dropped and
+     * reloaded on next use.
+     */
+    public void remove(Long itemId, Long bookingId) {
+        afterCommit(itemId, timeline -> timeline.remove(bookingId));
+    }
+
+    public void evict(Long itemId) {
+        afterCommit(itemId, timeline -> false);
+    }
+
+    /**
+     * Drops every timeline, for writes that remove bookings of items not known to the caller,
+     * such as a user delete cascading to the bookings they made.
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            allChanges.incrementAndGet();
+            timelines.invalidateAll();
+        });
+    }
+
+    private ItemTimeline timeline(Long itemId) {
+        ItemTimeline timeline = timelines.getIfPresent(itemId);
+        if (timeline != null) {
+            return timeline;
+        }
+        long allSeen = allChanges.get();
+        long seen = changes.get(stripe(itemId));
+        return keep(itemId, load(List.of(itemId)).get(itemId), allSeen, seen);
+    }
+
+    /**
+     * Caches a loaded timeline unless another one got there first or a write of the item's stripe,
+     * or of all items, committed since the load started.
+     */
+    private ItemTimeline keep(Long itemId, ItemTimeline loaded, long allSeen, long seen) {
+        ItemTimeline kept = timelines.asMap().compute(itemId, (id, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            return allChanges.get() == allSeen && changes.get(stripe(id)) == seen ? loaded : null;
+        });
+        return kept != null ? kept : loaded;
+    }
+
+    private Map<Long, ItemTimeline> load(Collection<Long> itemIds) {
+        Map<Long, ItemTimeline> loaded = new HashMap<>();
+        itemIds.forEach(itemId -> loaded.put(itemId, new ItemTimeline()));
+        bookingRepository.findTimelineBookings(itemIds, BookingStatus.REJECTED, LocalDateTime.now())
+                .forEach(booking -> loaded.get(booking.getItem().getId())
+                        .add(BookingMapper.toItemBookingDto(booking)));
+        return loaded;
+    }
+
+    /**
+     * Applies a change to the item's timeline once the current transaction commits, or at once
+     * outside a transaction. The change returns false when the timeline has to be dropped.
+     */
+    private void afterCommit(Long itemId, Predicate<ItemTimeline> change) {
+        afterCommit(() -> {
+            changes.incrementAndGet(stripe(itemId));
+            ItemTimeline timeline = timelines.getIfPresent(itemId);
+            if (timeline != null && !change.test(timeline)) {
+                timelines.asMap().remove(itemId, timeline);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable apply) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    private static int stripe(Long itemId) {
+        return Long.hashCode(itemId) & (STRIPES - 1);
+    }
+
+    private static class ItemTimeline {
+        private static final Comparator<ShortItemBookingDto> ORDER = Comparator
+                .comparing(ShortItemBookingDto::getStart)
+                .thenComparing(ShortItemBookingDto::getId);
+
+        private final NavigableSet<ShortItemBookingDto> bookings = new TreeSet<>(ORDER);
+        private final Map<Long, ShortItemBookingDto> byId = new HashMap<>();
+
+        synchronized ShortItemBookingDto findLast(LocalDateTime now) {
+            ShortItemBookingDto last = bookings.lower(probe(now, Long.MIN_VALUE));
+            if (last != null) {
+                NavigableSet<ShortItemBookingDto> older = bookings.headSet(last, false);
+                if (!older.isEmpty()) {
+                    older.forEach(booking -> byId.remove(booking.getId()));
+                    older.clear();
+                }
+            }
+            return last;
+        }
+
+        synchronized ShortItemBookingDto findNext(LocalDateTime now) {
+            return bookings.higher(probe(now, Long.MAX_VALUE));
+        }
+
+        synchronized void add(ShortItemBookingDto booking) {
+            ShortItemBookingDto previous = byId.put(booking.getId(), booking);
+            if (previous != null) {
+                bookings.remove(previous);
+            }
+            bookings.add(booking);
+        }
+
+        /**
+         * Returns false when the removed booking was the oldest one kept: bookings before it
+         * are not held in memory, so the timeline has to be reloaded.
+         */
+        synchronized boolean remove(Long bookingId) {
+            ShortItemBookingDto booking = byId.remove(bookingId);
+            if (booking == null) {
+                return true;
+            }
+            boolean oldest = booking == bookings.first();
+            bookings.remove(booking);
+            return !oldest;
+        }
+
+        private static ShortItemBookingDto probe(LocalDateTime start, Long id) {
+            return ShortItemBookingDto.builder()
+                    .id(id)
+                    .start(start)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResult {
+    private long imported;
+    private long failed;
+    /**
+     * The first failures, at most shareit.import.max-errors of them.
+     */
+    private List<ImportError> errors;
+    /**
+     * Failures counted in failed but not listed in errors.
+     */
+    private long errorsOmitted;
+}
@@ -0,0 +1,130 @@
+package ru.practicum.shareit.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a newline-delimited JSON stream and writes its records in batches, each batch in its own
+ * transaction. Every record is checked by the caller's validator before it joins a batch. When a
+ * batch fails, its rows are retried one by one to report the offending lines; the rest of the
+ * stream is still imported. Blank lines are skipped but keep their line numbers. Only the first
+ * shareit.import.max-errors failures are listed, the others are only counted.
+ */
+@Slf4j
+@Component
+public class NdjsonImporter {
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public NdjsonImporter(ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${shareit.import.batch-size}") int batchSize,
+                          @Value("${shareit.import.max-errors}") int maxErrors) {
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports the records of the stream; the validator throws BadRequestException for a record
+     * that must not be written.
+     */
+    public <T> ImportResult run(InputStream body, Class<T> type, Consumer<T> validator, Consumer<List<T>> writer) {
+        ImportResult result = ImportResult.builder()
+                .errors(new ArrayList<>())
+                .build();
+        List<Row<T>> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                T value;
+                try {
+                    value = objectMapper.readValue(line, type);
+                    validator.accept(value);
+                } catch (JsonProcessingException e) {
+                    fail(result, lineNumber, "Malformed record: " + e.getOriginalMessage());
+                    continue;
+                } catch (BadRequestException e) {
+                    fail(result, lineNumber, "Invalid record: " + e.getMessage());
+                    continue;
+                }
+                batch.add(new Row<>(lineNumber, value));
+                if (batch.size() == batchSize) {
+                    write(batch, writer, result);
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!batch.isEmpty()) {
+            write(batch, writer, result);
+        }
+        log.info("Imported {} {} records, {} failed", result.getImported(), type.getSimpleName(), result.getFailed());
+        return result;
+    }
+
+    private <T> void write(List<Row<T>> batch, Consumer<List<T>> writer, ImportResult result) {
+        try {
+            List<T> values = batch.stream()
+                    .map(Row::getValue)
+                    .collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> writer.accept(values));
+            result.setImported(result.getImported() + batch.size());
+        } catch (DataAccessException batchFailure) {
+            for (Row<T> row : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writer.accept(List.of(row.getValue())));
+                    result.setImported(result.getImported() + 1);
+                } catch (DataAccessException e) {
+                    fail(result, row.getLine(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+        }
+    }
+
+    private void fail(ImportResult result, long line, String error) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new ImportError(line, error));
+        } else {
+            result.setErrorsOmitted(result.getErrorsOmitted() + 1);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Row<T> {
+        private final long line;
+        private final T value;
+    }
+}
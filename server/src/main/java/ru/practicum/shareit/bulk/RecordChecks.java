@@ -0,0 +1,38 @@
+package ru.practicum.shareit.bulk;
+
+import ru.practicum.shareit.exception.BadRequestException;
+
+import java.util.regex.Pattern;
+
+/**
+ * Field checks for imported records, matching the constraints the gateway applies to the same
+ * fields on create. Imports are streamed through the gateway unparsed, so the server checks them.
+ */
+public final class RecordChecks {
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+");
+
+    private RecordChecks() {
+    }
+
+    public static void requireText(String value, String field, int maxLength) {
+        if (value == null || value.isBlank()) {
+            throw new BadRequestException(String.format("%s must not be blank", field));
+        }
+        if (value.length() > maxLength) {
+            throw new BadRequestException(String.format("%s must be at most %d characters", field, maxLength));
+        }
+    }
+
+    public static void requireEmail(String value, String field, int maxLength) {
+        requireText(value, field, maxLength);
+        if (!EMAIL.matcher(value).matches()) {
+            throw new BadRequestException(String.format("%s must be a well-formed email address", field));
+        }
+    }
+
+    public static void requirePresent(Object value, String field) {
+        if (value == null) {
+            throw new BadRequestException(String.format("%s must not be null", field));
+        }
+    }
+}
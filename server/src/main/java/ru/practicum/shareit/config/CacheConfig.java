@@ -0,0 +1,32 @@
+package ru.practicum.shareit.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Caffeine caches of the server. The caching advice runs outside the transactional one, so a hit
+ * does not open a transaction, and evictions made inside a transaction are applied after commit.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+    public static final String COMMENT_SUMMARIES_CACHE = "commentSummaries";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${shareit.cache.users.spec}") String usersSpec,
+                                     @Value("${shareit.cache.comment-summaries.spec}") String commentSummariesSpec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(USERS_CACHE, Caffeine.from(usersSpec).build());
+        cacheManager.registerCustomCache(COMMENT_SUMMARIES_CACHE, Caffeine.from(commentSummariesSpec).build());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
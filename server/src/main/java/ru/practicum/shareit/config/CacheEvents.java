@@ -0,0 +1,277 @@
+package ru.practicum.shareit.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.service.BookingTimeline;
+import ru.practicum.shareit.item.comment.service.CommentSummaries;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps the caches of server instances sharing one PostgreSQL database coherent. Write
+ * transactions name the items and users they changed; the names are sent with NOTIFY right
+ * before commit, so PostgreSQL delivers them to the other instances only once the transaction
+ * has committed. Every instance LISTENs on a connection of its own and drops what the names
+ * cover from the users cache, comment summaries and booking timelines, and refreshes changed
+ * items in a search index kept in memory. Notifications sent while an instance is not
+ * listening are lost, so on every reconnect it drops all of those caches and refills the search
+ * index. Off unless shareit.cache.events.enabled is set, which every instance behind a balancing
+ * gateway needs; with H2 each instance has a database of its own and the setting is ignored.
+ */
+@Slf4j
+@Component
+public class CacheEvents implements SmartLifecycle {
+    private static final String CHANNEL = "shareit_cache";
+    /**
+     * Below the 8000 bytes PostgreSQL allows for a payload; longer lists are sent in several.
+     */
+    private static final int MAX_PAYLOAD = 7000;
+    private static final char ITEM = 'i';
+    private static final char USER = 'u';
+    private static final char DELETED_USER = 'd';
+
+    private final boolean enabled;
+    private final String origin = UUID.randomUUID().toString();
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final Duration pollInterval;
+    private final Cache users;
+    private final CommentSummaries commentSummaries;
+    private final BookingTimeline bookingTimeline;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemRepository itemRepository;
+    private volatile boolean running;
+    private Thread listener;
+
+    public CacheEvents(@Value("${shareit.cache.events.enabled}") boolean enabled,
+                       @Value("${shareit.cache.events.poll-interval}") Duration pollInterval,
+                       JdbcTemplate jdbcTemplate,
+                       DataSourceProperties dataSourceProperties,
+                       CacheManager cacheManager,
+                       CommentSummaries commentSummaries,
+                       BookingTimeline bookingTimeline,
+                       ItemSearchEngine itemSearchEngine,
+                       ItemRepository itemRepository) {
+        boolean postgres = dataSourceProperties.determineUrl().startsWith("jdbc:postgresql:");
+        if (enabled && !postgres) {
+            log.warn("Cache events need PostgreSQL, they stay off for {}", dataSourceProperties.determineUrl());
+        }
+        this.enabled = enabled && postgres;
+        this.pollInterval = pollInterval;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.users = Objects.requireNonNull(cacheManager.getCache(CacheConfig.USERS_CACHE));
+        this.commentSummaries = commentSummaries;
+        this.bookingTimeline = bookingTimeline;
+        this.itemSearchEngine = itemSearchEngine;
+        this.itemRepository = itemRepository;
+    }
+
+    /**
+     * The item, its bookings or its comments changed.
+     */
+    public void itemChanged(Long itemId) {
+        publish(ITEM + String.valueOf(itemId));
+    }
+
+    /**
+     * The user was renamed or got a new email.
+     */
+    public void userChanged(Long userId) {
+        publish(USER + String.valueOf(userId));
+    }
+
+    /**
+     * The user was deleted, with their items, bookings and comments.
+     */
+    public void userDeleted(Long userId) {
+        publish(DELETED_USER + String.valueOf(userId));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-events");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publish(String event) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(Set.of(event));
+            return;
+        }
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> events = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    send(events);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheEvents.this);
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    private void send(Set<String> events) {
+        StringBuilder payload = new StringBuilder(origin);
+        for (String event : events) {
+            if (payload.length() + event.length() + 1 > MAX_PAYLOAD) {
+                notify(payload.toString());
+                payload = new StringBuilder(origin);
+            }
+            payload.append(' ').append(event);
+        }
+        notify(payload.toString());
+    }
+
+    private void notify(String payload) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rows -> null, CHANNEL, payload);
+    }
+
+    private void listen() {
+        DataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                dropAll(reconnect);
+                log.info("Listening for cache events of other instances");
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications((int) pollInterval.toMillis());
+                    if (received != null && received.length > 0) {
+                        apply(received);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache event listener lost its connection, reconnecting: {}", e.getMessage());
+                pause();
+            }
+            reconnect = true;
+        }
+    }
+
+    private void apply(PGNotification[] received) {
+        Set<Long> items = new HashSet<>();
+        for (PGNotification notification : received) {
+            String[] events = notification.getParameter().split(" ");
+            if (events[0].equals(origin)) {
+                continue;
+            }
+            for (int i = 1; i < events.length; i++) {
+                long id = Long.parseLong(events[i].substring(1));
+                switch (events[i].charAt(0)) {
+                    case ITEM:
+                        items.add(id);
+                        break;
+                    case USER:
+                        users.evict(id);
+                        commentSummaries.evictAll();
+                        break;
+                    case DELETED_USER:
+                        users.evict(id);
+                        commentSummaries.evictAll();
+                        bookingTimeline.evictAll();
+                        break;
+                    default:
+                        log.warn("Unknown cache event {}", events[i]);
+                }
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        items.forEach(itemId -> {
+            commentSummaries.evict(itemId);
+            bookingTimeline.evict(itemId);
+        });
+        for (Item item : itemRepository.findAllById(items)) {
+            if (Boolean.TRUE.equals(item.getAvailable())) {
+                itemSearchEngine.index(item);
+            } else {
+                itemSearchEngine.remove(item);
+            }
+        }
+    }
+
+    /**
+     * Drops everything other instances may have changed while this one was not listening. The
+     * search index was built from the database at startup, so it is only refilled on reconnect.
+     */
+    private void dropAll(boolean reconnect) {
+        users.clear();
+        commentSummaries.evictAll();
+        bookingTimeline.evictAll();
+        if (reconnect) {
+            itemSearchEngine.rebuild();
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.comment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Total number of comments of an item and its latest comments in chronological order.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentSummary {
+    private long count;
+    private List<CommentDto> latest;
+}
@@ -1,14 +1,33 @@
 package ru.practicum.shareit.item.comment.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.item.comment.model.Comment;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByItemId(Long itemId);
+    @EntityGraph(attributePaths = {"item", "author"})
+    @Query("SELECT c FROM Comment c "
+            + "WHERE c.item.id = :itemId "
+            + "AND (c.created > :cursorCreated OR (c.created = :cursorCreated AND c.id > :cursorId)) "
+            + "ORDER BY c.created, c.id")
+    List<Comment> findItemComments(Long itemId, LocalDateTime cursorCreated, Long cursorId, Pageable page);
 
-    List<Comment> findAllByItemIdOrderByCreated(Long itemId);
-}
\ No newline at end of file
+    @Query(value = "SELECT c.id AS \"id\", c.text AS \"text\", c.item_id AS \"itemId\", u.name AS \"authorName\", "
+            + "c.created AS \"created\", c.total AS \"total\" "
+            + "FROM (SELECT c.*, "
+            + "ROW_NUMBER() OVER (PARTITION BY c.item_id ORDER BY c.created DESC, c.id DESC) AS rn, "
+            + "COUNT(*) OVER (PARTITION BY c.item_id) AS total "
+            + "FROM comments c WHERE c.item_id IN :itemIds) c "
+            + "JOIN users u ON u.id = c.author_id "
+            + "WHERE c.rn <= :limit "
+            + "ORDER BY c.item_id, c.created, c.id", nativeQuery = true)
+    List<CommentSummaryRow> findLatestComments(Collection<Long> itemIds, int limit);
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.comment.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * One of the latest comments of an item together with the item's comment total.
+ */
+public interface CommentSummaryRow {
+    Long getId();
+
+    String getText();
+
+    Long getItemId();
+
+    String getAuthorName();
+
+    LocalDateTime getCreated();
+
+    Long getTotal();
+}
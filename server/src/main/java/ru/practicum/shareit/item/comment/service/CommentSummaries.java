@@ -0,0 +1,121 @@
+package ru.practicum.shareit.item.comment.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.config.CacheConfig;
+import ru.practicum.shareit.item.comment.dto.CommentDto;
+import ru.practicum.shareit.item.comment.dto.CommentSummary;
+import ru.practicum.shareit.item.comment.repository.CommentRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Comment count and latest comments of items, kept in the comment summaries cache. Misses of a
+ * whole page of items are loaded with one query. Entries are evicted once comment writes and
+ * user updates, which may rename an author, commit. A summary loaded while such an eviction
+ * happened is returned but not cached, so it cannot outlive the eviction.
+ */
+@Component
+public class CommentSummaries {
+    private static final int STRIPES = 1024;
+
+    private final CommentRepository commentRepository;
+    private final Cache<Long, CommentSummary> cache;
+    private final int size;
+    private final AtomicLongArray changes = new AtomicLongArray(STRIPES);
+    private final AtomicLong allChanges = new AtomicLong();
+
+    public CommentSummaries(CommentRepository commentRepository,
+                            CacheManager cacheManager,
+                            @Value("${shareit.comments.summary-size}") int size) {
+        this.commentRepository = commentRepository;
+        this.cache = nativeCache(cacheManager);
+        this.size = size;
+    }
+
+    public CommentSummary find(Long itemId) {
+        return findAll(List.of(itemId)).get(itemId);
+    }
+
+    public Map<Long, CommentSummary> findAll(Collection<Long> itemIds) {
+        Map<Long, CommentSummary> summaries = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long itemId : itemIds) {
+            CommentSummary summary = cache.getIfPresent(itemId);
+            if (summary != null) {
+                summaries.put(itemId, summary);
+            } else {
+                missing.add(itemId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+        long allSeen = allChanges.get();
+        Map<Long, Long> seen = new HashMap<>();
+        missing.forEach(itemId -> seen.put(itemId, changes.get(stripe(itemId))));
+        Map<Long, CommentSummary> loaded = new HashMap<>();
+        missing.forEach(itemId -> loaded.put(itemId, new CommentSummary(0, new ArrayList<>())));
+        commentRepository.findLatestComments(missing, size).forEach(row -> {
+            CommentSummary summary = loaded.get(row.getItemId());
+            summary.setCount(row.getTotal());
+            summary.getLatest().add(CommentDto.builder()
+                    .id(row.getId())
+                    .text(row.getText())
+                    .itemId(row.getItemId())
+                    .authorName(row.getAuthorName())
+                    .created(row.getCreated())
+                    .build());
+        });
+        loaded.forEach((itemId, summary) -> cache.asMap().compute(itemId, (key, cached) ->
+                allChanges.get() == allSeen && changes.get(stripe(itemId)) == seen.get(itemId) ? summary : cached));
+        summaries.putAll(loaded);
+        return summaries;
+    }
+
+    public void evict(Long itemId) {
+        afterCommit(() -> {
+            changes.incrementAndGet(stripe(itemId));
+            cache.invalidate(itemId);
+        });
+    }
+
+    public void evictAll() {
+        afterCommit(() -> {
+            allChanges.incrementAndGet();
+            cache.invalidateAll();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<Long, CommentSummary> nativeCache(CacheManager cacheManager) {
+        return (Cache<Long, CommentSummary>) cacheManager.getCache(CacheConfig.COMMENT_SUMMARIES_CACHE).getNativeCache();
+    }
+
+    private static int stripe(Long itemId) {
+        return Long.hashCode(itemId) & (STRIPES - 1);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -2,6 +2,9 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -12,11 +15,15 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.shareit.bulk.ImportResult;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
 import ru.practicum.shareit.item.service.ItemService;
 
-import java.util.Collection;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -33,18 +40,29 @@ public class ItemController {
         return itemService.create(userId, itemDto);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importItems(@RequestHeader(OWNER_ID_HEADER) Long userId, InputStream body) {
+        log.info("Received a POST-request to the endpoint: '/items/import' to import items of owner with ID = {}", userId);
+        return itemService.importItems(userId, body);
+    }
+
     @GetMapping("/{itemId}")
-    public ItemDto findById(@RequestHeader(OWNER_ID_HEADER) Long userId, @PathVariable Long itemId) {
+    public ItemDto findById(@RequestHeader(OWNER_ID_HEADER) Long userId, @PathVariable Long itemId,
+                            WebRequest request) {
         log.info("Received a GET-request to the endpoint: '/items' to get an item with ID = {}", itemId);
+        if (request.checkNotModified(itemService.findItemTag(itemId, userId))) {
+            return null;
+        }
         return itemService.findItemById(itemId, userId);
     }
 
     @GetMapping
-    public List<ItemDto> findAll(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                 @RequestParam(defaultValue = "0") Integer from,
-                                 @RequestParam(defaultValue = "10") Integer size) {
+    public ResponseEntity<List<ItemDto>> findAll(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                 @RequestParam(defaultValue = "0") Integer from,
+                                                 @RequestParam(defaultValue = "10") Integer size,
+                                                 @RequestParam(required = false) String cursor) {
         log.info("Received a GET-request to the endpoint: '/items' to get all items of owner with ID = {}", userId);
-        return itemService.findUserItems(userId, from, size);
+        return itemService.findUserItems(userId, from, size, cursor).toResponse();
     }
 
     @PatchMapping("/{itemId}")
@@ -61,11 +79,34 @@ public class ItemController {
     }
 
     @GetMapping("/search")
-    public Collection<ItemDto> search(@RequestParam String text,
-                                      @RequestParam(defaultValue = "0") Integer from,
-                                      @RequestParam(defaultValue = "10") Integer size) {
+    public ResponseEntity<List<ItemDto>> search(@RequestParam String text,
+                                                @RequestParam(defaultValue = "0") Integer from,
+                                                @RequestParam(defaultValue = "10") Integer size,
+                                                @RequestParam(required = false) String cursor) {
         log.info("Received a GET-request to the endpoint: '/items/search' to search item with text = {}", text);
-        return itemService.search(text, from, size);
+        return itemService.search(text, from, size, cursor).toResponse();
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public List<TimeSlotDto> findAvailability(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                              @PathVariable Long itemId,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                              LocalDateTime from,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                              LocalDateTime to) {
+        log.info("Received a GET-request to the endpoint: '/items/{itemId}/availability' for item with ID = {}", itemId);
+        return itemService.findAvailability(itemId, userId, from, to);
+    }
+
+    @GetMapping("/{itemId}/comments")
+    public ResponseEntity<List<CommentDto>> findComments(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                         @PathVariable Long itemId,
+                                                         @RequestParam(defaultValue = "0") Integer from,
+                                                         @RequestParam(defaultValue = "10") Integer size,
+                                                         @RequestParam(required = false) String cursor) {
+        log.info("Received a GET-request to the endpoint: '/items/{itemId}/comments' to get comments of item with ID = {}",
+                itemId);
+        return itemService.findComments(itemId, userId, from, size, cursor).toResponse();
     }
 
     @PostMapping("/{itemId}/comment")
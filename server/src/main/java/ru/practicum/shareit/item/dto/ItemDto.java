@@ -21,5 +21,6 @@ public class ItemDto {
     private ShortItemBookingDto lastBooking;
     private ShortItemBookingDto nextBooking;
     private List<CommentDto> comments;
+    private Long commentCount;
     private Long requestId;
 }
\ No newline at end of file
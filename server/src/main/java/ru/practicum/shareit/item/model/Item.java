@@ -17,6 +17,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import java.util.List;
 
 @Entity
@@ -43,6 +44,16 @@ public class Item {
     @Column(name = "owner_id", nullable = false)
     private Long ownerId;
 
+    @Version
+    private Long version;
+
+    /**
+     * Counts changes of the comments shown with the item: new comments and renamed or deleted
+     * authors. Written by ItemRepository updates only.
+     */
+    @Column(name = "comments_version", insertable = false, updatable = false)
+    private Long commentsVersion;
+
     @Transient
     private Booking lastBooking;
 
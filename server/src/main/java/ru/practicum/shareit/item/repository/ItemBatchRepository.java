@@ -0,0 +1,47 @@
+package ru.practicum.shareit.item.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Plain JDBC batch inserts for bulk imports. Generated ids are read back from the batch
+ * and set on the imported items.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemBatchRepository {
+    private static final String INSERT = "INSERT INTO items (name, description, is_available, owner_id, request_id) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(Long ownerId, List<ItemDto> items) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"})) {
+                for (ItemDto item : items) {
+                    statement.setString(1, item.getName());
+                    statement.setString(2, item.getDescription());
+                    statement.setObject(3, item.getAvailable(), Types.BOOLEAN);
+                    statement.setLong(4, ownerId);
+                    statement.setObject(5, item.getRequestId(), Types.BIGINT);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; keys.next() && i < items.size(); i++) {
+                        items.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
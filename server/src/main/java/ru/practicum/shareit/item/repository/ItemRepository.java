@@ -1,23 +1,78 @@
 package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemText;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
-    List<Item> findAllByOwnerId(Long userId, Pageable page);
+    @EntityGraph(attributePaths = {"itemRequest", "itemRequest.requester"})
+    List<Item> findAllByOwnerIdAndIdGreaterThanOrderById(Long userId, Long cursorId, Pageable page);
 
     @Query("SELECT i FROM Item i "
-            + "WHERE upper(i.name) like upper(concat('%', ?1, '%')) "
-            + "OR upper(i.description) like upper(concat('%', ?1, '%')) "
-            + "AND i.available = true")
-    List<Item> searchAvailableItems(String text, Pageable page);
+            + "WHERE (upper(i.name) like upper(concat('%', :pattern, '%')) escape '\\' "
+            + "OR upper(i.description) like upper(concat('%', :pattern, '%')) escape '\\') "
+            + "AND i.available = true AND i.id > :cursorId "
+            + "ORDER BY i.id")
+    List<Item> searchAvailableItems(String pattern, Long cursorId, Pageable page);
+
+    @Query(value = "SELECT r.* FROM (SELECT i.*, "
+            + "2 * word_similarity(:text, i.name) + word_similarity(:text, i.description) AS rank "
+            + "FROM items i "
+            + "WHERE i.is_available = true "
+            + "AND (i.name ILIKE concat('%', :pattern, '%') OR i.description ILIKE concat('%', :pattern, '%'))) r "
+            + "WHERE r.rank < :cursorRank OR (r.rank = :cursorRank AND r.id > :cursorId) "
+            + "ORDER BY r.rank DESC, r.id",
+            nativeQuery = true)
+    List<Item> searchAvailableItemsRanked(String text, String pattern, Float cursorRank, Long cursorId, Pageable page);
+
+    @Query(value = "SELECT 2 * word_similarity(:text, i.name) + word_similarity(:text, i.description) "
+            + "FROM items i "
+            + "WHERE i.id = :itemId",
+            nativeQuery = true)
+    Float findSearchRank(String text, Long itemId);
+
+    @Query("SELECT i.id AS id, i.name AS name, i.description AS description FROM Item i "
+            + "WHERE i.available = true AND i.id > :id "
+            + "ORDER BY i.id")
+    List<ItemText> findAvailableItemTexts(Long id, Pageable page);
+
+    /**
+     * Locks the item row until the end of the transaction, so writes that must see each other's
+     * bookings of one item run one at a time across all server instances.
+     */
+    @Query(value = "SELECT i.id FROM items i WHERE i.id = :itemId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(Long itemId);
+
+    @Query("SELECT i.version AS version, i.ownerId AS ownerId, i.commentsVersion AS commentsVersion "
+            + "FROM Item i "
+            + "WHERE i.id = :itemId")
+    Optional<ItemStamp> findStamp(Long itemId);
+
+    @Modifying
+    @Query("UPDATE Item i SET i.commentsVersion = i.commentsVersion + 1 WHERE i.id = :itemId")
+    void touchComments(Long itemId);
+
+    /**
+     * Marks the comments of every item the author commented on as changed, for when the author
+     * is renamed or deleted.
+     */
+    @Modifying
+    @Query("UPDATE Item i SET i.commentsVersion = i.commentsVersion + 1 "
+            + "WHERE i.id IN (SELECT c.item.id FROM Comment c WHERE c.author.id = :authorId)")
+    void touchCommentsByAuthor(Long authorId);
 
     List<Item> findAllByItemRequest(ItemRequest itemRequest);
+
+    List<Item> findAllByItemRequestIdInOrderById(Collection<Long> requestIds);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.item.repository;
+
+/**
+ * Version and owner of an item and the version of its comments, used to derive the ETag of the
+ * item view.
+ */
+public interface ItemStamp {
+    Long getVersion();
+
+    Long getOwnerId();
+
+    Long getCommentsVersion();
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.item.search;
+
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+
+/**
+ * Finds available items whose name or description contains the given text.
+ * The implementation is chosen with the {@code shareit.search.engine} property.
+ * Engines that keep their own index are notified about item writes.
+ */
+public interface ItemSearchEngine {
+    /**
+     * Returns the page of matches following {@code after}, or the page at the offset of {@code page}
+     * when there is no cursor.
+     */
+    CursorPage<Item> search(String text, PageCursor after, Pageable page);
+
+    default void index(Item item) {
+    }
+
+    /**
+     * Replaces the previous state of an updated item, as it was indexed, with its new one.
+     */
+    default void update(Item previous, Item item) {
+    }
+
+    /**
+     * Removes the item, as it was indexed.
+     */
+    default void remove(Item item) {
+    }
+
+    /**
+     * Indexes every available item again, for when item writes may have been missed.
+     */
+    default void rebuild() {
+    }
+
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
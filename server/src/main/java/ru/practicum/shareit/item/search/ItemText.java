@@ -0,0 +1,12 @@
+package ru.practicum.shareit.item.search;
+
+/**
+ * Searchable columns of an item, used to build the in-process search index.
+ */
+public interface ItemText {
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+}
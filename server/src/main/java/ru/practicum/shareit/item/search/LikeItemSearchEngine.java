@@ -0,0 +1,30 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import java.util.List;
+
+/**
+ * Portable search for databases without pg_trgm (H2 test profile). Results are ordered by id,
+ * so the cursor is the id of the last item.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "like")
+@RequiredArgsConstructor
+public class LikeItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public CursorPage<Item> search(String text, PageCursor after, Pageable page) {
+        List<Item> items = itemRepository.searchAvailableItems(ItemSearchEngine.escapeLike(text),
+                after == null ? 0 : after.getId(), page);
+        return CursorPage.of(items, page.getPageSize(), item -> PageCursor.of(item.getId()));
+    }
+}
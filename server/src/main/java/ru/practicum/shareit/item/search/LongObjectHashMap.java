@@ -0,0 +1,116 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.function.LongFunction;
+
+/**
+ * Hash map from primitive long keys to non-null values, so keys are neither boxed nor wrapped in
+ * entries. Open addressing with linear probing and backward-shift deletion; a slot is free when
+ * its value is null. Not thread-safe.
+ */
+class LongObjectHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private V[] values;
+    private int mask;
+    private int size;
+
+    LongObjectHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    V put(long key, V value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            V previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    V computeIfAbsent(long key, LongFunction<V> factory) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+        V value = factory.apply(key);
+        insert(key, value);
+        return value;
+    }
+
+    V remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = values[slot];
+        int hole = slot;
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        for (int slot = home(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, V value) {
+        if (2 * (size + 1) > keys.length) {
+            long[] oldKeys = keys;
+            V[] oldValues = values;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    place(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+        place(key, value);
+        size++;
+    }
+
+    private void place(long key, V value) {
+        int slot = home(key);
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private int home(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = (V[]) new Object[capacity];
+        mask = capacity - 1;
+    }
+}
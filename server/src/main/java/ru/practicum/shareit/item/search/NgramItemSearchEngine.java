@@ -0,0 +1,239 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process inverted trigram index over the names and descriptions of available items. Only
+ * the posting lists are held in memory: candidates from the intersection of the query trigrams
+ * are loaded from the database in id order, a batch at a time, and checked there for a real
+ * substring match and availability until the page is filled. Rows changed since they were
+ * indexed are thereby never returned by mistake. Queries shorter than a trigram fall back to the
+ * SQL search.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "memory")
+@RequiredArgsConstructor
+public class NgramItemSearchEngine implements ItemSearchEngine {
+    private static final int GRAM = 3;
+    private static final int BATCH = 500;
+    private static final char FIELD_SEPARATOR = '\0';
+
+    private final ItemRepository itemRepository;
+    private final LongObjectHashMap<LongPostingList> postings = new LongObjectHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds every available item to the index. Postings of texts items no longer have stay
+     * behind, they are filtered out by the check against the database.
+     */
+    @Override
+    @PostConstruct
+    public void rebuild() {
+        long lastId = 0;
+        int indexed = 0;
+        List<ItemText> batch;
+        do {
+            batch = itemRepository.findAvailableItemTexts(lastId, PageRequest.of(0, BATCH));
+            lock.writeLock().lock();
+            try {
+                for (ItemText item : batch) {
+                    add(item.getId(), grams(text(item.getName(), item.getDescription())));
+                    lastId = item.getId();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            indexed += batch.size();
+        } while (batch.size() == BATCH);
+        log.info("Item search index built: {} items, {} trigrams", indexed, postings.size());
+    }
+
+    @Override
+    public CursorPage<Item> search(String text, PageCursor after, Pageable page) {
+        String query = normalize(text);
+        long afterId = after == null ? 0 : after.getId();
+        if (query.length() < GRAM) {
+            return CursorPage.of(itemRepository.searchAvailableItems(ItemSearchEngine.escapeLike(text), afterId, page),
+                    page.getPageSize(), item -> PageCursor.of(item.getId()));
+        }
+        int size = page.getPageSize();
+        long[] candidates = candidates(grams(query));
+        int first = Arrays.binarySearch(candidates, afterId + 1);
+        int next = first < 0 ? -first - 1 : first;
+        long skip = page.getOffset();
+        List<Item> result = new ArrayList<>();
+        while (next < candidates.length && result.size() < size) {
+            int count = (int) Math.min(Math.min(BATCH, skip + size - result.size()), candidates.length - next);
+            List<Long> ids = Arrays.stream(candidates, next, next + count).boxed().collect(Collectors.toList());
+            next += count;
+            Map<Long, Item> items = itemRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Item::getId, Function.identity()));
+            for (Long id : ids) {
+                Item item = items.get(id);
+                if (item == null || !matches(item, query)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else if (result.size() < size) {
+                    result.add(item);
+                }
+            }
+        }
+        return CursorPage.of(result, size, item -> PageCursor.of(item.getId()));
+    }
+
+    /**
+     * Adds the item to the index; an unavailable item is left out.
+     */
+    @Override
+    public void index(Item item) {
+        if (!Boolean.TRUE.equals(item.getAvailable())) {
+            return;
+        }
+        long[] grams = grams(text(item.getName(), item.getDescription()));
+        lock.writeLock().lock();
+        try {
+            add(item.getId(), grams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Item previous, Item item) {
+        long[] previousGrams = grams(text(previous.getName(), previous.getDescription()));
+        long[] grams = Boolean.TRUE.equals(item.getAvailable())
+                ? grams(text(item.getName(), item.getDescription()))
+                : new long[0];
+        lock.writeLock().lock();
+        try {
+            unindex(item.getId(), previousGrams);
+            add(item.getId(), grams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Item item) {
+        long[] grams = grams(text(item.getName(), item.getDescription()));
+        lock.writeLock().lock();
+        try {
+            unindex(item.getId(), grams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(long id, long[] grams) {
+        for (long gram : grams) {
+            postings.computeIfAbsent(gram, key -> new LongPostingList()).add(id);
+        }
+    }
+
+    private void unindex(long id, long[] grams) {
+        for (long gram : grams) {
+            LongPostingList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static boolean matches(Item item, String query) {
+        return Boolean.TRUE.equals(item.getAvailable())
+                && (normalize(item.getName()).contains(query) || normalize(item.getDescription()).contains(query));
+    }
+
+    /**
+     * Ids, in ascending order, of the items indexed under every one of the trigrams.
+     */
+    private long[] candidates(long[] grams) {
+        lock.readLock().lock();
+        try {
+            List<LongPostingList> lists = new ArrayList<>();
+            for (long gram : grams) {
+                LongPostingList list = postings.get(gram);
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(LongPostingList::size));
+            long[] candidates = lists.get(0).toArray();
+            int count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                LongPostingList list = lists.get(i);
+                int kept = 0;
+                for (int j = 0; j < count; j++) {
+                    if (list.contains(candidates[j])) {
+                        candidates[kept++] = candidates[j];
+                    }
+                }
+                count = kept;
+            }
+            return Arrays.copyOf(candidates, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normalized name and description, joined by a separator no query matches across.
+     */
+    private static String text(String name, String description) {
+        return normalize(name) + FIELD_SEPARATOR + normalize(description);
+    }
+
+    /**
+     * Distinct trigrams of the text in ascending order, three chars packed into one long.
+     * Trigrams containing the field separator are skipped.
+     */
+    private static long[] grams(String text) {
+        long[] grams = new long[Math.max(text.length() - GRAM + 1, 0)];
+        int count = 0;
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            char a = text.charAt(i);
+            char b = text.charAt(i + 1);
+            char c = text.charAt(i + 2);
+            if (a != FIELD_SEPARATOR && b != FIELD_SEPARATOR && c != FIELD_SEPARATOR) {
+                grams[count++] = ((long) a << 32) | ((long) b << 16) | c;
+            }
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[distinct - 1] != grams[i]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
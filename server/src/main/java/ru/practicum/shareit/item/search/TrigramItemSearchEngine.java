@@ -0,0 +1,33 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import java.util.List;
+
+/**
+ * PostgreSQL search served by the pg_trgm GIN indexes on items.name and items.description,
+ * ordered by word similarity with name matches weighted above description matches.
+ * The cursor carries the rank and id of the last item of a page.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "trigram", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TrigramItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public CursorPage<Item> search(String text, PageCursor after, Pageable page) {
+        List<Item> items = itemRepository.searchAvailableItemsRanked(text, ItemSearchEngine.escapeLike(text),
+                after == null ? Float.POSITIVE_INFINITY : after.getRank(),
+                after == null ? 0 : after.getId(), page);
+        return CursorPage.of(items, page.getPageSize(),
+                item -> PageCursor.of(itemRepository.findSearchRank(text, item.getId()), item.getId()));
+    }
+}
@@ -1,8 +1,13 @@
 package ru.practicum.shareit.item.service;
 
+import ru.practicum.shareit.bulk.ImportResult;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+import ru.practicum.shareit.pagination.CursorPage;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -10,7 +15,12 @@ public interface ItemService {
 
     ItemDto findItemById(Long itemId, Long userId);
 
-    List<ItemDto> findUserItems(Long userId, Integer from, Integer size);
+    /**
+     * ETag of the item view for the user, or null when the item cannot be viewed.
+     */
+    String findItemTag(Long itemId, Long userId);
+
+    CursorPage<ItemDto> findUserItems(Long userId, Integer from, Integer size, String cursor);
 
     ItemDto save(ItemDto itemDto, Long itemId, Long userId);
 
@@ -18,9 +28,13 @@ public interface ItemService {
 
     void delete(Long itemId);
 
-    List<ItemDto> search(String text, Integer from, Integer size);
+    CursorPage<ItemDto> search(String text, Integer from, Integer size, String cursor);
+
+    List<TimeSlotDto> findAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to);
 
-    Long findOwnerId(Long itemId);
+    CursorPage<CommentDto> findComments(Long itemId, Long userId, Integer from, Integer size, String cursor);
 
     CommentDto addComment(Long itemId, Long userId, CommentDto commentDto);
+
+    ImportResult importItems(Long userId, InputStream body);
 }
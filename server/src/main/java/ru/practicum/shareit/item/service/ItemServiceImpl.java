@@ -2,36 +2,52 @@ package ru.practicum.shareit.item.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.shareit.booking.mapper.BookingMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dto.ShortItemBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingTimeline;
+import ru.practicum.shareit.bulk.ImportResult;
+import ru.practicum.shareit.bulk.NdjsonImporter;
+import ru.practicum.shareit.bulk.RecordChecks;
+import ru.practicum.shareit.config.CacheEvents;
 import ru.practicum.shareit.exception.NotAvailableException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.OperationAccessException;
+import ru.practicum.shareit.exception.TimeDataException;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
+import ru.practicum.shareit.item.comment.dto.CommentSummary;
 import ru.practicum.shareit.item.comment.mapper.CommentMapper;
 import ru.practicum.shareit.item.comment.model.Comment;
 import ru.practicum.shareit.item.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.comment.service.CommentSummaries;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemBatchRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.service.ItemRequestService;
-import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -42,8 +58,15 @@ public class ItemServiceImpl implements ItemService {
     private final ItemRepository itemRepository;
     private final BookingRepository bookingRepository;
     private final UserService userService;
+    private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestService requestService;
+    private final BookingTimeline bookingTimeline;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemBatchRepository itemBatchRepository;
+    private final NdjsonImporter ndjsonImporter;
+    private final CommentSummaries commentSummaries;
+    private final CacheEvents cacheEvents;
 
     @Override
     @Transactional
@@ -53,7 +76,10 @@ public class ItemServiceImpl implements ItemService {
         item.setOwnerId(userId);
         item.setItemRequest(itemDto.getRequestId() != null ?
                 ItemRequestMapper.toItemRequest(requestService.findById(userId, itemDto.getRequestId())) : null);
-        return ItemMapper.toItemDto(itemRepository.save(item));
+        Item saved = itemRepository.save(item);
+        afterCommit(() -> itemSearchEngine.index(saved));
+        cacheEvents.itemChanged(saved.getId());
+        return ItemMapper.toItemDto(saved);
     }
 
     @Override
@@ -65,20 +91,51 @@ public class ItemServiceImpl implements ItemService {
         if (Objects.equals(item.getOwnerId(), userId)) {
             updateBookings(result);
         }
-        List<Comment> comments = commentRepository.findByItemId(result.getId());
-        result.setComments(CommentMapper.toDtoList(comments));
+        setComments(result, commentSummaries.find(itemId));
         return result;
     }
 
     @Override
     @Transactional
-    public List<ItemDto> findUserItems(Long userId, Integer from, Integer size) {
-        Sort sort = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sort);
-        return itemRepository.findAllByOwnerId(userId, page)
-                .stream()
-                .map(item -> findItemById(item.getId(), userId))
+    public String findItemTag(Long itemId, Long userId) {
+        return itemRepository.findStamp(itemId)
+                .map(stamp -> {
+                    String tag = String.format("item-%d-%d-%d", itemId, stamp.getVersion(),
+                            stamp.getCommentsVersion());
+                    if (!Objects.equals(stamp.getOwnerId(), userId)) {
+                        return tag;
+                    }
+                    LocalDateTime now = LocalDateTime.now();
+                    return String.format("%s-%d-%d", tag, bookingId(bookingTimeline.findLast(itemId, now)),
+                            bookingId(bookingTimeline.findNext(itemId, now)));
+                })
+                .orElse(null);
+    }
+
+    @Override
+    @Transactional
+    public CursorPage<ItemDto> findUserItems(Long userId, Integer from, Integer size, String cursor) {
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = OffsetPageRequest.of(after == null ? from : 0, size);
+        List<Item> items = itemRepository.findAllByOwnerIdAndIdGreaterThanOrderById(userId,
+                after == null ? 0 : after.getId(), page);
+        if (items.isEmpty()) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+        List<Long> itemIds = items.stream()
+                .map(Item::getId)
                 .collect(Collectors.toList());
+        bookingTimeline.preload(itemIds);
+        Map<Long, CommentSummary> comments = commentSummaries.findAll(itemIds);
+        LocalDateTime now = LocalDateTime.now();
+        List<ItemDto> result = items.stream()
+                .map(item -> {
+                    ItemDto itemDto = ItemMapper.toItemDto(item);
+                    setBookings(itemDto, now);
+                    return setComments(itemDto, comments.get(item.getId()));
+                })
+                .collect(Collectors.toList());
+        return CursorPage.of(result, size, itemDto -> PageCursor.of(itemDto.getId()));
     }
 
     @Override
@@ -90,6 +147,12 @@ public class ItemServiceImpl implements ItemService {
         if (!item.getOwnerId().equals(userId)) {
             throw new OperationAccessException(String.format("User with ID = %d is not an owner, update is not available.", userId));
         }
+        Item previous = Item.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .available(item.getAvailable())
+                .build();
         if (itemDto.getName() != null) {
             item.setName(itemDto.getName());
         }
@@ -99,55 +162,94 @@ public class ItemServiceImpl implements ItemService {
         if (itemDto.getAvailable() != null) {
             item.setAvailable(itemDto.getAvailable());
         }
-        return ItemMapper.toItemDto(itemRepository.save(item));
+        Item saved = itemRepository.save(item);
+        afterCommit(() -> itemSearchEngine.update(previous, saved));
+        cacheEvents.itemChanged(itemId);
+        return ItemMapper.toItemDto(saved);
     }
 
     @Override
     @Transactional
     public ItemDto updateBookings(ItemDto itemDto) {
-        LocalDateTime now = LocalDateTime.now();
-        List<Booking> bookings = bookingRepository.findBookingsItem(itemDto.getId());
-        Booking lastBooking = bookings.stream()
-                .filter(obj -> !(obj.getStatus().equals(BookingStatus.REJECTED)))
-                .filter(obj -> obj.getStart().isBefore(now))
-                .min((obj1, obj2) -> obj2.getStart().compareTo(obj1.getStart())).orElse(null);
-        Booking nextBooking = bookings.stream()
-                .filter(obj -> !(obj.getStatus().equals(BookingStatus.REJECTED)))
-                .filter(obj -> obj.getStart().isAfter(now))
-                .min(Comparator.comparing(Booking::getStart)).orElse(null);
-        if (lastBooking != null) {
-            itemDto.setLastBooking(BookingMapper.toItemBookingDto(lastBooking));
-        }
-        if (nextBooking != null) {
-            itemDto.setNextBooking(BookingMapper.toItemBookingDto(nextBooking));
-        }
+        return setBookings(itemDto, LocalDateTime.now());
+    }
+
+    private ItemDto setBookings(ItemDto itemDto, LocalDateTime now) {
+        itemDto.setLastBooking(bookingTimeline.findLast(itemDto.getId(), now));
+        itemDto.setNextBooking(bookingTimeline.findNext(itemDto.getId(), now));
+        return itemDto;
+    }
+
+    private ItemDto setComments(ItemDto itemDto, CommentSummary summary) {
+        itemDto.setComments(summary.getLatest());
+        itemDto.setCommentCount(summary.getCount());
         return itemDto;
     }
 
+    private static long bookingId(ShortItemBookingDto booking) {
+        return booking != null ? booking.getId() : 0;
+    }
+
     @Override
     @Transactional
     public void delete(Long itemId) {
+        itemRepository.findById(itemId).ifPresent(item -> afterCommit(() -> itemSearchEngine.remove(item)));
         itemRepository.deleteById(itemId);
+        commentSummaries.evict(itemId);
+        bookingTimeline.evict(itemId);
+        cacheEvents.itemChanged(itemId);
     }
 
     @Override
     @Transactional
-    public List<ItemDto> search(String text, Integer from, Integer size) {
-        Pageable page = PageRequest.of(from / size, size);
+    public CursorPage<ItemDto> search(String text, Integer from, Integer size, String cursor) {
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = OffsetPageRequest.of(after == null ? from : 0, size);
         if (text == null || text.isBlank()) {
-            return Collections.emptyList();
+            return new CursorPage<>(Collections.emptyList(), null);
         }
-        return itemRepository.searchAvailableItems(text, page).stream()
-                .map(ItemMapper::toItemDto)
-                .collect(Collectors.toList());
+        return itemSearchEngine.search(text, after, page).map(ItemMapper::toItemDto);
+    }
+
+    @Override
+    @Transactional
+    public List<TimeSlotDto> findAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new TimeDataException(String.format("Invalid availability range from = %s to = %s", from, to));
+        }
+        userService.findUserById(userId);
+        if (!itemRepository.existsById(itemId)) {
+            throw new NotFoundException(String.format("Item with ID = %d not found.", itemId));
+        }
+        List<TimeSlotDto> free = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+        for (TimeSlotDto busy : bookingRepository.findBusySlots(itemId, BookingStatus.ACTIVE_STATUSES, from, to)) {
+            if (busy.getStart().isAfter(freeFrom)) {
+                free.add(new TimeSlotDto(freeFrom, busy.getStart()));
+            }
+            if (busy.getEnd().isAfter(freeFrom)) {
+                freeFrom = busy.getEnd();
+            }
+        }
+        if (freeFrom.isBefore(to)) {
+            free.add(new TimeSlotDto(freeFrom, to));
+        }
+        return free;
     }
 
     @Override
     @Transactional
-    public Long findOwnerId(Long itemId) {
-        return itemRepository.findById(itemId)
-                .orElseThrow(() -> new NotFoundException(String.format("Item with ID = %d not found.", itemId)))
-                .getOwnerId();
+    public CursorPage<CommentDto> findComments(Long itemId, Long userId, Integer from, Integer size, String cursor) {
+        userService.findUserById(userId);
+        if (!itemRepository.existsById(itemId)) {
+            throw new NotFoundException(String.format("Item with ID = %d not found.", itemId));
+        }
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = OffsetPageRequest.of(after == null ? from : 0, size);
+        List<Comment> comments = commentRepository.findItemComments(itemId,
+                after == null ? PageCursor.MIN_TIME : after.getTime(), after == null ? 0 : after.getId(), page);
+        return CursorPage.of(CommentMapper.toDtoList(comments), size,
+                comment -> PageCursor.of(comment.getCreated(), comment.getId()));
     }
 
     @Override
@@ -155,7 +257,8 @@ public class ItemServiceImpl implements ItemService {
     public CommentDto addComment(Long itemId, Long userId, CommentDto commentDto) {
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new NotFoundException(String.format("Item with ID = %d not found.", itemId)));
-        User user = UserMapper.toUser(userService.findUserById(userId));
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException(String.format("User with ID = %d not found.", userId)));
         List<Booking> bookings = bookingRepository
                 .findByItemIdAndBookerIdAndStatusIsAndEndIsBefore(itemId, userId, BookingStatus.APPROVED, LocalDateTime.now());
         log.info(bookings.toString());
@@ -166,7 +269,46 @@ public class ItemServiceImpl implements ItemService {
             comment.setItem(item);
             comment.setAuthor(user);
             comment.setCreated(LocalDateTime.now());
+            itemRepository.touchComments(itemId);
+            commentSummaries.evict(itemId);
+            cacheEvents.itemChanged(itemId);
             return CommentMapper.toDto(commentRepository.save(comment));
         }
     }
+
+    @Override
+    public ImportResult importItems(Long userId, InputStream body) {
+        userService.findUserById(userId);
+        return ndjsonImporter.run(body, ItemDto.class, ItemServiceImpl::validateImported, items -> {
+            itemBatchRepository.insertAll(userId, items);
+            items.forEach(itemDto -> cacheEvents.itemChanged(itemDto.getId()));
+            afterCommit(() -> items.forEach(itemDto -> {
+                Item item = ItemMapper.toItem(itemDto);
+                item.setOwnerId(userId);
+                itemSearchEngine.index(item);
+            }));
+        });
+    }
+
+    private static void validateImported(ItemDto item) {
+        RecordChecks.requireText(item.getName(), "name", 64);
+        RecordChecks.requireText(item.getDescription(), "description", 64);
+        RecordChecks.requirePresent(item.getAvailable(), "available");
+    }
+
+    /**
+     * Search engines that keep their own index only see committed item writes.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a list endpoint together with the cursor of the next page.
+ * The cursor is null when the page is not full, i.e. there is nothing more to read.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public static <T> CursorPage<T> of(List<T> content, int size, Function<T, PageCursor> cursor) {
+        if (content.isEmpty() || content.size() < size) {
+            return new CursorPage<>(content, null);
+        }
+        return new CursorPage<>(content, cursor.apply(content.get(content.size() - 1)).encode());
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream()
+                .map(mapper)
+                .collect(Collectors.toList()), nextCursor);
+    }
+
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(content);
+    }
+}
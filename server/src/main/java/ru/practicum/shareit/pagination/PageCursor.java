@@ -0,0 +1,75 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page: the value of the sort column and the row id as a tie-breaker.
+ * Clients receive it as an opaque string and send it back to continue after that row.
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class PageCursor {
+    public static final LocalDateTime MIN_TIME = LocalDateTime.of(1, 1, 1, 0, 0);
+    public static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final String SEPARATOR = "|";
+
+    private final String key;
+    private final Long id;
+
+    public static PageCursor of(Long id) {
+        return new PageCursor("", id);
+    }
+
+    public static PageCursor of(LocalDateTime time, Long id) {
+        return new PageCursor(time.toString(), id);
+    }
+
+    public static PageCursor of(Float rank, Long id) {
+        return new PageCursor(rank.toString(), id);
+    }
+
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new PageCursor(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException(String.format("Invalid cursor: %s", cursor));
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(String.format("Invalid cursor: %s", encode()));
+        }
+    }
+
+    public Float getRank() {
+        try {
+            return Float.valueOf(key);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(String.format("Invalid cursor: %s", encode()));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.shareit.request.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
@@ -30,15 +32,20 @@ public class ItemRequestController {
 
     @GetMapping("{requestId}")
     public ItemRequestDto findRequestById(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                          @PathVariable Long requestId) {
+                                          @PathVariable Long requestId,
+                                          WebRequest request) {
+        if (request.checkNotModified(requestService.findRequestTag(userId, requestId))) {
+            return null;
+        }
         return requestService.findById(userId, requestId);
     }
 
     @GetMapping("/all")
-    public List<ItemRequestDto> findRequests(@RequestHeader(OWNER_ID_HEADER) Long userId,
-                                             @RequestParam(defaultValue = "0") Integer from,
-                                             @RequestParam(defaultValue = "10") Integer size) {
-        return requestService.findRequests(userId, from, size);
+    public ResponseEntity<List<ItemRequestDto>> findRequests(@RequestHeader(OWNER_ID_HEADER) Long userId,
+                                                             @RequestParam(defaultValue = "0") Integer from,
+                                                             @RequestParam(defaultValue = "10") Integer size,
+                                                             @RequestParam(required = false) String cursor) {
+        return requestService.findRequests(userId, from, size, cursor).toResponse();
     }
 
     @GetMapping
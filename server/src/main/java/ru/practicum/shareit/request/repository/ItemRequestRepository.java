@@ -1,13 +1,36 @@
 package ru.practicum.shareit.request.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+    @EntityGraph(attributePaths = "requester")
     List<ItemRequest> findByRequesterIdOrderByCreatedDesc(Long userId);
 
-    List<ItemRequest> findByRequesterIdIsNot(Long userId, Pageable page);
+    @EntityGraph(attributePaths = "requester")
+    @Query("SELECT r FROM ItemRequest r "
+            + "WHERE r.requester.id <> :userId "
+            + "AND (r.created > :cursorCreated OR (r.created = :cursorCreated AND r.id > :cursorId)) "
+            + "ORDER BY r.created, r.id")
+    List<ItemRequest> findOtherUsersRequests(Long userId, LocalDateTime cursorCreated, Long cursorId, Pageable page);
+
+    /**
+     * Empty when the request or the viewing user does not exist; the viewer only has to exist.
+     */
+    @Query("SELECT q.version AS requesterVersion, COUNT(i.id) AS answers, "
+            + "COALESCE(SUM(i.version), 0) AS answerVersions, COALESCE(MAX(i.id), 0) AS lastAnswerId "
+            + "FROM ItemRequest r "
+            + "JOIN r.requester q "
+            + "JOIN User u ON u.id = :userId "
+            + "LEFT JOIN Item i ON i.itemRequest = r "
+            + "WHERE r.id = :requestId "
+            + "GROUP BY r.id, q.version")
+    Optional<ItemRequestStamp> findStamp(Long requestId, Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.request.repository;
+
+/**
+ * State of the answers to a request and of its requester, used to derive the ETag of the request view.
+ */
+public interface ItemRequestStamp {
+    Long getRequesterVersion();
+
+    Long getAnswers();
+
+    Long getAnswerVersions();
+
+    Long getLastAnswerId();
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.request.service;
 
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.List;
@@ -9,7 +10,12 @@ public interface ItemRequestService {
 
     ItemRequestDto findById(Long userId, Long requestId);
 
-    List<ItemRequestDto> findRequests(Long userId, int from, int size);
+    /**
+     * ETag of the request view for the user, or null when the request cannot be viewed.
+     */
+    String findRequestTag(Long userId, Long requestId);
+
+    CursorPage<ItemRequestDto> findRequests(Long userId, int from, int size, String cursor);
 
     List<ItemRequestDto> findUserRequests(Long userId);
 }
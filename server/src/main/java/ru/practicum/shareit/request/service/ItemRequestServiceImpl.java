@@ -1,23 +1,28 @@
 package ru.practicum.shareit.request.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.service.UserServiceImpl;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,55 +30,73 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestRepository requestRepository;
     private final UserServiceImpl userService;
     private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
 
     @Override
     @Transactional
     public ItemRequestDto create(ItemRequestDto itemRequestDto, Long userId) {
         ItemRequest itemRequest = ItemRequest.builder()
                 .description(itemRequestDto.getDescription())
-                .requester(UserMapper.toUser(userService.findUserById(userId)))
+                .requester(userRepository.findById(userId)
+                        .orElseThrow(() -> new NotFoundException(String.format("User with ID = %d not found.", userId))))
                 .created(LocalDateTime.now())
                 .build();
         return ItemRequestMapper.toItemRequestDto(requestRepository.save(itemRequest));
     }
 
+    @Override
+    @Transactional
+    public String findRequestTag(Long userId, Long requestId) {
+        return requestRepository.findStamp(requestId, userId)
+                .map(stamp -> String.format("request-%d-%d-%d-%d-%d", requestId, stamp.getRequesterVersion(),
+                        stamp.getAnswers(), stamp.getAnswerVersions(), stamp.getLastAnswerId()))
+                .orElse(null);
+    }
+
     @Override
     @Transactional
     public ItemRequestDto findById(Long userId, Long requestId) {
         ItemRequest itemRequest = requestRepository.findById(requestId)
                 .orElseThrow(() -> new NotFoundException(String.format("Request with id = %d not found.", requestId)));
         itemRequest.setItems(itemRepository.findAllByItemRequest(itemRequest));
-        ItemRequestDto itemRequestDto = ItemRequestMapper.toItemRequestDto(itemRequest);
-        itemRequestDto.setRequester(userService.findUserById(userId));
-        return itemRequestDto;
+        userService.findUserById(userId);
+        return ItemRequestMapper.toItemRequestDto(itemRequest);
     }
 
     @Override
     @Transactional
-    public List<ItemRequestDto> findRequests(Long userId, int from, int size) {
+    public CursorPage<ItemRequestDto> findRequests(Long userId, int from, int size, String cursor) {
         UserMapper.toUser(userService.findUserById(userId));
-        Pageable page = PageRequest.of(from / size, size, Sort.by("created"));
-        List<ItemRequestDto> list = new ArrayList<>();
-        List<ItemRequest> findAllByRequesterIdIsNot = requestRepository.findByRequesterIdIsNot(userId, page);
-        findAllByRequesterIdIsNot.forEach(itemRequest -> {
-            itemRequest.setItems(itemRepository.findAllByItemRequest(itemRequest));
-            ItemRequestDto itemRequestDto = ItemRequestMapper.toItemRequestDto(itemRequest);
-            list.add(itemRequestDto);
-        });
-        return list;
-
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable page = OffsetPageRequest.of(after == null ? from : 0, size);
+        List<ItemRequest> requests = requestRepository.findOtherUsersRequests(userId,
+                after == null ? PageCursor.MIN_TIME : after.getTime(), after == null ? 0 : after.getId(), page);
+        return CursorPage.of(toItemRequestDtos(requests), size, request -> PageCursor.of(request.getCreated(), request.getId()));
     }
 
     @Override
     @Transactional
     public List<ItemRequestDto> findUserRequests(Long userId) {
         userService.findUserById(userId);
+        return toItemRequestDtos(requestRepository.findByRequesterIdOrderByCreatedDesc(userId));
+    }
+
+    /**
+     * Attaches the answers to a page of requests with a single query instead of one per request.
+     */
+    private List<ItemRequestDto> toItemRequestDtos(List<ItemRequest> requests) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Item>> itemsByRequest = itemRepository.findAllByItemRequestIdInOrderById(requests.stream()
+                        .map(ItemRequest::getId)
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(item -> item.getItemRequest().getId()));
         List<ItemRequestDto> list = new ArrayList<>();
-        List<ItemRequest> findAllByRequesterIdOrderByCreatedDesc = requestRepository.findByRequesterIdOrderByCreatedDesc(userId);
-        findAllByRequesterIdOrderByCreatedDesc.forEach(i -> {
-            i.setItems(itemRepository.findAllByItemRequest(i));
-            ItemRequestDto itemRequestDto = ItemRequestMapper.toItemRequestDto(i);
-            list.add(itemRequestDto);
+        requests.forEach(request -> {
+            request.setItems(itemsByRequest.getOrDefault(request.getId(), List.of()));
+            list.add(ItemRequestMapper.toItemRequestDto(request));
         });
         return list;
     }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.user.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -10,9 +11,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.shareit.bulk.ImportResult;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -28,6 +31,12 @@ public class UserController {
         return userService.create(userDto);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importUsers(InputStream body) {
+        log.info("Received a POST-request to the endpoint: '/users/import' to import users.");
+        return userService.importUsers(body);
+    }
+
     @GetMapping("/{userId}")
     public UserDto findById(@PathVariable long userId) {
         log.info("Received a GET-request to the endpoint: '/users' to get user with ID = {}", userId);
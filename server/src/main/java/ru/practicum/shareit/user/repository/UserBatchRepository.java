@@ -0,0 +1,26 @@
+package ru.practicum.shareit.user.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.util.List;
+
+/**
+ * Plain JDBC batch inserts for bulk imports, bypassing per-entity persist and identity round trips.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBatchRepository {
+    private static final String INSERT = "INSERT INTO users (name, email) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<UserDto> users) {
+        jdbcTemplate.batchUpdate(INSERT, users, users.size(), (statement, user) -> {
+            statement.setString(1, user.getName());
+            statement.setString(2, user.getEmail());
+        });
+    }
+}
@@ -1,7 +1,9 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.bulk.ImportResult;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.io.InputStream;
 import java.util.List;
 
 public interface UserService {
@@ -14,4 +16,6 @@ public interface UserService {
     UserDto save(UserDto userDto, Long userId);
 
     void delete(Long userId);
+
+    ImportResult importUsers(InputStream body);
 }
\ No newline at end of file
@@ -1,14 +1,26 @@
 package ru.practicum.shareit.user.service;
 
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.service.BookingTimeline;
+import ru.practicum.shareit.bulk.ImportResult;
+import ru.practicum.shareit.bulk.NdjsonImporter;
+import ru.practicum.shareit.bulk.RecordChecks;
+import ru.practicum.shareit.config.CacheConfig;
+import ru.practicum.shareit.config.CacheEvents;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.comment.service.CommentSummaries;
+import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserBatchRepository;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.mapper.UserMapper;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,6 +28,12 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final UserBatchRepository userBatchRepository;
+    private final ItemRepository itemRepository;
+    private final NdjsonImporter ndjsonImporter;
+    private final CommentSummaries commentSummaries;
+    private final BookingTimeline bookingTimeline;
+    private final CacheEvents cacheEvents;
 
     @Override
     @Transactional
@@ -25,6 +43,7 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public UserDto findUserById(Long userId) {
         return UserMapper.toUserDto(userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException(String.format("User with ID = %d not found.", userId))));
@@ -40,20 +59,40 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public UserDto save(UserDto userDto, Long userId) {
-        User user = UserMapper.toUser(findUserById(userId));
-        if (userDto.getName() != null) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException(String.format("User with ID = %d not found.", userId)));
+        if (userDto.getName() != null && !userDto.getName().equals(user.getName())) {
             user.setName(userDto.getName());
+            itemRepository.touchCommentsByAuthor(userId);
         }
         if (userDto.getEmail() != null) {
             user.setEmail(userDto.getEmail());
         }
+        commentSummaries.evictAll();
+        cacheEvents.userChanged(userId);
         return UserMapper.toUserDto(userRepository.save(user));
     }
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public void delete(Long userId) {
+        itemRepository.touchCommentsByAuthor(userId);
         userRepository.deleteById(userId);
+        commentSummaries.evictAll();
+        bookingTimeline.evictAll();
+        cacheEvents.userDeleted(userId);
+    }
+
+    @Override
+    public ImportResult importUsers(InputStream body) {
+        return ndjsonImporter.run(body, UserDto.class, UserServiceImpl::validateImported, userBatchRepository::insertAll);
+    }
+
+    private static void validateImported(UserDto user) {
+        RecordChecks.requireText(user.getName(), "name", 64);
+        RecordChecks.requireEmail(user.getEmail(), "email", 64);
     }
 }
\ No newline at end of file
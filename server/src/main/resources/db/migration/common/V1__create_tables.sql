@@ -1,5 +1,3 @@
-DROP TABLE IF EXISTS users, items, bookings, requests, comments;
-
 CREATE TABLE IF NOT EXISTS users
 (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
@@ -54,4 +52,4 @@ CREATE TABLE IF NOT EXISTS comments
     CONSTRAINT pk_comments PRIMARY KEY (id),
     CONSTRAINT fk_comments_item_id FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE,
     CONSTRAINT fk_comments_author_id FOREIGN KEY (author_id) REFERENCES users (id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
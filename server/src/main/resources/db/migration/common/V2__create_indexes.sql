@@ -0,0 +1,18 @@
+-- bookings: booker lists (ALL, PAST, CURRENT, FUTURE) keyset-paged by (start_date, id)
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_date DESC, id DESC);
+-- bookings: booker lists filtered by status (WAITING, REJECTED)
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (booker_id, status, start_date DESC, id DESC);
+-- bookings: owner lists joined through items, last/next booking timeline
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_date DESC, id DESC);
+-- bookings: availability and overlap checks
+CREATE INDEX IF NOT EXISTS idx_bookings_item_period ON bookings (item_id, start_date, end_date, status);
+-- bookings: comment admission (finished approved booking of the item by the author)
+CREATE INDEX IF NOT EXISTS idx_bookings_item_booker_status_end ON bookings (item_id, booker_id, status, end_date);
+
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_request ON items (request_id);
+
+CREATE INDEX IF NOT EXISTS idx_requests_requester_created ON requests (requester_id, created DESC);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests (created, id);
+
+CREATE INDEX IF NOT EXISTS idx_comments_item_created ON comments (item_id, created);
@@ -0,0 +1,281 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.comment.model.Comment;
+import ru.practicum.shareit.item.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every repository query against PostgreSQL with sequential scans disabled and fails when a
+ * plan still contains one, i.e. when no index can serve the query. Each SELECT, UPDATE and DELETE
+ * is explained with the parameters it was executed with. Plans only mean something on the
+ * production database, so the test runs when SHAREIT_TEST_PG_URL points to a scratch PostgreSQL
+ * database (SHAREIT_TEST_PG_USER and SHAREIT_TEST_PG_PASSWORD default to postgres); Flyway
+ * migrates it before the test.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfEnvironmentVariable(named = "SHAREIT_TEST_PG_URL", matches = ".+")
+class QueryPlanTest {
+    private static final Map<String, String> PLANS = new LinkedHashMap<>();
+    private static volatile boolean recording;
+    private static final Pageable PAGE = PageRequest.of(0, 20);
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private ItemRequest request;
+    private Booking booking;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("SHAREIT_TEST_PG_URL"));
+        registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.username", () -> env("SHAREIT_TEST_PG_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> env("SHAREIT_TEST_PG_PASSWORD", "postgres"));
+    }
+
+    @BeforeEach
+    void setUp() {
+        owner = entityManager.persist(User.builder().name("owner").email("owner@plan.com").build());
+        booker = entityManager.persist(User.builder().name("booker").email("booker@plan.com").build());
+        request = entityManager.persist(ItemRequest.builder()
+                .description("Need a drill")
+                .requester(booker)
+                .created(NOW)
+                .build());
+        item = entityManager.persist(Item.builder()
+                .name("Drill")
+                .description("Cordless drill")
+                .available(true)
+                .ownerId(owner.getId())
+                .itemRequest(request)
+                .build());
+        booking = entityManager.persist(Booking.builder()
+                .start(NOW.minusDays(2))
+                .end(NOW.minusDays(1))
+                .item(item)
+                .booker(booker)
+                .status(BookingStatus.APPROVED)
+                .build());
+        entityManager.persist(Comment.builder().text("Works").item(item).author(booker).created(NOW).build());
+        entityManager.flush();
+        entityManager.clear();
+        PLANS.clear();
+        recording = true;
+    }
+
+    @AfterEach
+    void checkPlans() {
+        recording = false;
+        PLANS.forEach((sql, plan) -> assertFalse(plan.contains("Seq Scan"), sql + "\n" + plan));
+    }
+
+    @Test
+    void bookingQueriesUseIndexes() {
+        Long bookerId = booker.getId();
+        Long ownerId = owner.getId();
+        LocalDateTime cursorStart = NOW.plusYears(100);
+        bookingRepository.findById(booking.getId());
+        bookingRepository.findAdmission(bookerId, item.getId(), BookingStatus.ACTIVE_STATUSES,
+                NOW.plusDays(2), NOW.plusDays(3));
+        bookingRepository.findStamp(booking.getId());
+        bookingRepository.decide(booking.getId(), ownerId, BookingStatus.APPROVED);
+        bookingRepository.findByBookerId(bookerId, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findCurrentBookingsBooker(bookerId, NOW, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findPastBookingsBooker(bookerId, NOW, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findFutureBookingsBooker(bookerId, NOW, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findWaitingBookingsBooker(bookerId, NOW, BookingStatus.WAITING, cursorStart,
+                Long.MAX_VALUE, PAGE);
+        bookingRepository.findRejectedBookingsBooker(bookerId, BookingStatus.REJECTED, cursorStart,
+                Long.MAX_VALUE, PAGE);
+        bookingRepository.findByItemOwnerId(ownerId, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findCurrentBookingsOwner(ownerId, NOW, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findPastBookingsOwner(ownerId, NOW, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findFutureBookingsOwner(ownerId, NOW, cursorStart, Long.MAX_VALUE, PAGE);
+        bookingRepository.findWaitingBookingsOwner(ownerId, NOW, BookingStatus.WAITING, cursorStart,
+                Long.MAX_VALUE, PAGE);
+        bookingRepository.findRejectedBookingsOwner(ownerId, BookingStatus.REJECTED, cursorStart,
+                Long.MAX_VALUE, PAGE);
+        bookingRepository.findTimelineBookings(List.of(item.getId()), BookingStatus.REJECTED, NOW);
+        bookingRepository.findBusySlots(item.getId(), BookingStatus.ACTIVE_STATUSES, NOW, NOW.plusDays(30));
+        bookingRepository.findByItemIdAndBookerIdAndStatusIsAndEndIsBefore(item.getId(), bookerId,
+                BookingStatus.APPROVED, NOW);
+    }
+
+    @Test
+    void itemQueriesUseIndexes() {
+        itemRepository.findAllByOwnerIdAndIdGreaterThanOrderById(owner.getId(), 0L, PAGE);
+        itemRepository.searchAvailableItemsRanked("drill", "drill", Float.MAX_VALUE, 0L, PAGE);
+        itemRepository.findSearchRank("drill", item.getId());
+        itemRepository.findAvailableItemTexts(0L, PAGE);
+        itemRepository.lockById(item.getId());
+        itemRepository.findStamp(item.getId());
+        itemRepository.touchComments(item.getId());
+        itemRepository.touchCommentsByAuthor(booker.getId());
+        itemRepository.findAllByItemRequest(request);
+        itemRepository.findAllByItemRequestIdInOrderById(List.of(request.getId()));
+    }
+
+    @Test
+    void requestQueriesUseIndexes() {
+        itemRequestRepository.findByRequesterIdOrderByCreatedDesc(booker.getId());
+        itemRequestRepository.findOtherUsersRequests(owner.getId(), NOW.minusYears(100), 0L, PAGE);
+        itemRequestRepository.findStamp(request.getId(), owner.getId());
+    }
+
+    @Test
+    void commentQueriesUseIndexes() {
+        commentRepository.findItemComments(item.getId(), NOW.minusYears(100), 0L, PAGE);
+        commentRepository.findLatestComments(List.of(item.getId()), 3);
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @TestConfiguration
+    static class ExplainConfig {
+        @Bean
+        static BeanPostProcessor explainingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, (target, method, args) -> {
+                        Object result = invoke(bean, method, args);
+                        return result instanceof Connection ? explaining((Connection) result) : result;
+                    });
+                }
+            };
+        }
+
+        private static Connection explaining(Connection connection) {
+            return proxy(Connection.class, (target, method, args) -> {
+                Object result = invoke(connection, method, args);
+                if (method.getName().equals("prepareStatement") && isExplainable((String) args[0])) {
+                    return explaining(connection, (PreparedStatement) result, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        /**
+         * Records the parameters bound to the statement and explains it with them right before
+         * it runs.
+         */
+        private static PreparedStatement explaining(Connection connection, PreparedStatement statement, String sql) {
+            List<Object[]> bindings = new ArrayList<>();
+            List<Method> setters = new ArrayList<>();
+            return proxy(PreparedStatement.class, (target, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    setters.add(method);
+                    bindings.add(args);
+                } else if (name.equals("executeQuery") || name.equals("executeUpdate") || name.equals("execute")) {
+                    if (recording && args == null) {
+                        explain(connection, sql, setters, bindings);
+                    }
+                }
+                return invoke(statement, method, args);
+            });
+        }
+
+        private static void explain(Connection connection, String sql, List<Method> setters, List<Object[]> bindings)
+                throws SQLException {
+            try (Statement settings = connection.createStatement()) {
+                settings.execute("SET LOCAL enable_seqscan = off");
+            }
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < setters.size(); i++) {
+                    invoke(explain, setters.get(i), bindings.get(i));
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                PLANS.put(sql, plan.toString());
+            }
+        }
+
+        private static boolean isExplainable(String sql) {
+            String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+            return statement.startsWith("select") || statement.startsWith("update") || statement.startsWith("delete");
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws SQLException {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
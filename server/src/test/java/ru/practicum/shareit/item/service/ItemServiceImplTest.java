@@ -0,0 +1,121 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingTimeline;
+import ru.practicum.shareit.bulk.NdjsonImporter;
+import ru.practicum.shareit.config.CacheConfig;
+import ru.practicum.shareit.config.CacheEvents;
+import ru.practicum.shareit.item.comment.model.Comment;
+import ru.practicum.shareit.item.comment.service.CommentSummaries;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemBatchRepository;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ItemServiceImpl.class, BookingTimeline.class, CommentSummaries.class, CacheConfig.class,
+        SimpleMeterRegistry.class})
+class ItemServiceImplTest {
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private ItemRequestService itemRequestService;
+    @MockBean
+    private ItemSearchEngine itemSearchEngine;
+    @MockBean
+    private ItemBatchRepository itemBatchRepository;
+    @MockBean
+    private NdjsonImporter ndjsonImporter;
+    @MockBean
+    private CacheEvents cacheEvents;
+
+    @Test
+    void findUserItemsRunsSameNumberOfStatementsForOneAndManyItems() {
+        long single = countStatements(ownerWithItems("single", 1));
+        long page = countStatements(ownerWithItems("page", PAGE_SIZE));
+
+        assertEquals(single, page);
+    }
+
+    private long countStatements(Long ownerId) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CursorPage<ItemDto> result = itemService.findUserItems(ownerId, 0, PAGE_SIZE, null);
+        long statements = statistics.getPrepareStatementCount();
+        result.getContent().forEach(item -> {
+            assertNotNull(item.getLastBooking());
+            assertNotNull(item.getNextBooking());
+            assertEquals(1, item.getCommentCount());
+        });
+        return statements;
+    }
+
+    /**
+     * Persists an owner with items that each have a past and a future booking and a comment.
+     */
+    private Long ownerWithItems(String name, int count) {
+        User owner = entityManager.persist(User.builder().name(name).email(name + "@owner.com").build());
+        User booker = entityManager.persist(User.builder().name(name).email(name + "@booker.com").build());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Item item = entityManager.persist(Item.builder()
+                    .name("Drill " + i)
+                    .description("Cordless drill " + i)
+                    .available(true)
+                    .ownerId(owner.getId())
+                    .build());
+            entityManager.persist(booking(item, booker, now.minusDays(2), now.minusDays(1)));
+            entityManager.persist(booking(item, booker, now.plusDays(1), now.plusDays(2)));
+            entityManager.persist(Comment.builder()
+                    .text("Works")
+                    .item(item)
+                    .author(booker)
+                    .created(now.minusHours(1))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return owner.getId();
+    }
+
+    private static Booking booking(Item item, User booker, LocalDateTime start, LocalDateTime end) {
+        return Booking.builder()
+                .start(start)
+                .end(end)
+                .item(item)
+                .booker(booker)
+                .status(BookingStatus.APPROVED)
+                .build();
+    }
+}